@@ -0,0 +1,102 @@
+package com.sainttx.menu;
+
+import org.bukkit.inventory.ItemStack;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A menu item that cycles through a list of icons. Every frame is rendered
+ * once and reused, and all animated items are advanced together by the
+ * MenuAPI animation ticker while their menu has viewers.
+ */
+public abstract class AnimatedMenuItem extends MenuItem {
+
+    private final List<ItemStack> frames;
+    private final int ticksPerFrame;
+    private List<ItemStack> renderedFrames;
+
+    /**
+     * Create a new animated menu item with the given title text on mouse
+     * over
+     *
+     * @param text          The title text to display on mouse over
+     * @param frames        The icons to cycle through, in order
+     * @param ticksPerFrame The number of ticks each frame is shown for
+     */
+    public AnimatedMenuItem(String text, List<ItemStack> frames, int ticksPerFrame) {
+        super(text, firstFrame(frames));
+        if (ticksPerFrame < 1) {
+            throw new IllegalArgumentException("ticksPerFrame must be at least 1");
+        }
+        this.frames = new ArrayList<ItemStack>(frames);
+        this.ticksPerFrame = ticksPerFrame;
+    }
+
+    /*
+     * Validates the frames before they are used as the item's icon
+     */
+    private static ItemStack firstFrame(List<ItemStack> frames) {
+        if (frames == null || frames.isEmpty()) {
+            throw new IllegalArgumentException("an animation needs at least 1 frame");
+        }
+        return frames.get(0);
+    }
+
+    /**
+     * Get the number of frames in this animation
+     *
+     * @return The frame count
+     */
+    public int getFrameCount() {
+        return frames.size();
+    }
+
+    /**
+     * Get the number of ticks each frame is shown for
+     *
+     * @return The ticks per frame
+     */
+    public int getTicksPerFrame() {
+        return ticksPerFrame;
+    }
+
+    /**
+     * Get the frame that should be shown at the given animation tick
+     *
+     * @param tick The animation tick
+     * @return The frame index
+     */
+    public int getFrameIndex(long tick) {
+        return (int) ((tick / ticksPerFrame) % frames.size());
+    }
+
+    /**
+     * Get a rendered frame of this animation. Frames are rendered the first
+     * time they are needed and reused until the description changes.
+     *
+     * @param index The frame index
+     * @return The rendered frame
+     */
+    protected ItemStack getFrame(int index) {
+        if (renderedFrames == null) {
+            List<ItemStack> rendered = new ArrayList<ItemStack>(frames.size());
+            for (ItemStack frame : frames) {
+                rendered.add(createItemStack(frame));
+            }
+            renderedFrames = rendered;
+        }
+        return renderedFrames.get(index);
+    }
+
+    @Override
+    protected ItemStack getItemStack() {
+        return getFrame(getFrameIndex(MenuAPI.getMenuAPI().getAnimationTick()));
+    }
+
+    @Override
+    protected void onDescriptionsChanged() {
+        renderedFrames = null;
+        super.onDescriptionsChanged();
+    }
+}
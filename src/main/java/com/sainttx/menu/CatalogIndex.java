@@ -0,0 +1,396 @@
+package com.sainttx.menu;
+
+import org.bukkit.ChatColor;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * A prefix index over the title text, descriptions and icon name and lore of
+ * a set of menu items. Items are tokenized once when they are added into a trie whose
+ * nodes hold every item with a word starting with that node's prefix, so
+ * searching walks one ordered set of matches instead of every item.
+ * <p/>
+ * Search results are always returned in catalog order, the order the items
+ * were first added in.
+ */
+public class CatalogIndex {
+
+    /*
+     * The root of the token trie, which holds no entries itself
+     */
+    private final Node root = new Node(null, '\0');
+
+    /*
+     * Every indexed item and its entry, and all entries in catalog order
+     */
+    private final Map<MenuItem, Entry> entries = new HashMap<MenuItem, Entry>();
+    private final NavigableSet<Entry> ordered = new TreeSet<Entry>();
+    private long nextSequence = 0;
+
+    /**
+     * Adds an item to the index. Items that are already indexed are
+     * re-tokenized and keep their place in the catalog order.
+     *
+     * @param item The menu item to index
+     */
+    public void add(MenuItem item) {
+        Entry entry = entries.get(item);
+        if (entry == null) {
+            entry = new Entry(item, nextSequence++);
+            entries.put(item, entry);
+            ordered.add(entry);
+        } else {
+            unlinkTokens(entry);
+        }
+
+        Set<String> itemTokens = tokenize(item.getText());
+        for (String description : item.getDescriptions()) {
+            itemTokens.addAll(tokenize(description));
+        }
+        // Items created from an icon carry their name and lore in its meta
+        ItemStack icon = item.getIcon();
+        if (icon != null && icon.hasItemMeta()) {
+            ItemMeta meta = icon.getItemMeta();
+            if (meta.hasDisplayName()) {
+                itemTokens.addAll(tokenize(meta.getDisplayName()));
+            }
+            if (meta.hasLore()) {
+                for (String line : meta.getLore()) {
+                    itemTokens.addAll(tokenize(line));
+                }
+            }
+        }
+        entry.tokens = itemTokens;
+        for (String token : itemTokens) {
+            Node node = root;
+            for (int i = 0; i < token.length(); i++) {
+                Node child = node.children.get(token.charAt(i));
+                if (child == null) {
+                    child = new Node(node, token.charAt(i));
+                    node.children.put(token.charAt(i), child);
+                }
+                child.entries.add(entry);
+                node = child;
+            }
+        }
+    }
+
+    /**
+     * Removes an item from the index
+     *
+     * @param item The menu item to remove
+     * @return True if the item was indexed, false otherwise
+     */
+    public boolean remove(MenuItem item) {
+        Entry entry = entries.remove(item);
+        if (entry == null) {
+            return false;
+        }
+        ordered.remove(entry);
+        unlinkTokens(entry);
+        return true;
+    }
+
+    /*
+     * Removes an entry from the nodes of its tokens, pruning nodes left
+     * empty. A node's entries include those of all its children, so once a
+     * node is empty everything below it is too.
+     */
+    private void unlinkTokens(Entry entry) {
+        for (String token : entry.tokens) {
+            Node node = root;
+            for (int i = 0; i < token.length(); i++) {
+                node = node.children.get(token.charAt(i));
+                if (node == null) {
+                    break;
+                }
+                node.entries.remove(entry);
+                if (node.entries.isEmpty()) {
+                    node.parent.children.remove(node.key);
+                    node.prune();
+                    break;
+                }
+            }
+        }
+    }
+
+    /*
+     * Finds the node for a prefix, or null if no indexed word starts with it
+     */
+    private Node find(String prefix) {
+        Node node = root;
+        for (int i = 0; i < prefix.length() && node != null; i++) {
+            node = node.children.get(prefix.charAt(i));
+        }
+        return node;
+    }
+
+    /**
+     * Returns if an item is currently indexed
+     *
+     * @param item The menu item
+     * @return True if the item is indexed, false otherwise
+     */
+    public boolean contains(MenuItem item) {
+        return entries.containsKey(item);
+    }
+
+    /**
+     * Returns if an indexed item matches every word of a query
+     *
+     * @param item  The menu item
+     * @param query The search query, null or blank matches every item
+     * @return True if the item is indexed and matches, false otherwise
+     */
+    public boolean matches(MenuItem item, String query) {
+        return matches(item, tokenize(query));
+    }
+
+    /*
+     * Returns if an indexed item matches every word of an already tokenized
+     * query
+     */
+    boolean matches(MenuItem item, Set<String> queryTokens) {
+        Entry entry = entries.get(item);
+        return entry != null && matchesAll(entry, queryTokens);
+    }
+
+    /**
+     * Get the number of indexed items
+     *
+     * @return The number of items
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Get all indexed items in catalog order
+     *
+     * @return A copy of the indexed items
+     */
+    public List<MenuItem> getItems() {
+        List<MenuItem> items = new ArrayList<MenuItem>(ordered.size());
+        for (Entry entry : ordered) {
+            items.add(entry.item);
+        }
+        return items;
+    }
+
+    /*
+     * Orders indexed items by their place in the catalog
+     */
+    Comparator<MenuItem> catalogOrder() {
+        return new Comparator<MenuItem>() {
+            @Override
+            public int compare(MenuItem first, MenuItem second) {
+                return entries.get(first).compareTo(entries.get(second));
+            }
+        };
+    }
+
+    /**
+     * Searches the index for items matching every word of a query, where a
+     * word matches if it is the prefix of any word in the item's text,
+     * descriptions or icon name and lore. Matches are found lazily as the cursor is advanced.
+     * <p/>
+     * The cursor stays valid when the index is modified. Removed items are
+     * skipped, and matching items are found if they come after the cursor's
+     * position in the catalog. Searching costs one ordered step per item
+     * the cursor passes over, however many words start with the query.
+     *
+     * @param query The search query, null or blank for every item
+     * @return A cursor over the matching items
+     */
+    public Cursor search(String query) {
+        Set<String> queryTokens = tokenize(query);
+
+        // Walk the word matching the fewest items and filter by the rest
+        String walked = null;
+        int fewest = Integer.MAX_VALUE;
+        for (String token : queryTokens) {
+            Node node = find(token);
+            int count = node == null ? 0 : node.entries.size();
+            if (count < fewest) {
+                walked = token;
+                fewest = count;
+            }
+        }
+        return new Cursor(walked, queryTokens);
+    }
+
+    /*
+     * Returns if an entry has a token starting with every given prefix
+     */
+    private static boolean matchesAll(Entry entry, Set<String> prefixes) {
+        for (String prefix : prefixes) {
+            boolean found = false;
+            for (String token : entry.tokens) {
+                if (token.startsWith(prefix)) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Splits text into lower case words, ignoring colour codes and any
+     * character that isn't a letter or digit
+     *
+     * @param text The text to split
+     * @return The words in the text
+     */
+    public static Set<String> tokenize(String text) {
+        Set<String> result = new LinkedHashSet<String>();
+        if (text == null) {
+            return result;
+        }
+        String stripped = ChatColor.stripColor(text).toLowerCase(Locale.ENGLISH);
+        for (String token : stripped.split("[^\\p{L}\\p{N}]+")) {
+            if (!token.isEmpty()) {
+                result.add(token);
+            }
+        }
+        return result;
+    }
+
+    /*
+     * An indexed item, ordered by when it was added to the catalog
+     */
+    private static final class Entry implements Comparable<Entry> {
+
+        private final MenuItem item;
+        private final long sequence;
+        private Set<String> tokens = Collections.emptySet();
+
+        Entry(MenuItem item, long sequence) {
+            this.item = item;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(Entry other) {
+            return sequence < other.sequence ? -1 : (sequence == other.sequence ? 0 : 1);
+        }
+    }
+
+    /*
+     * A node of the token trie and the entries with a token starting with its
+     * prefix. Pruned nodes are marked so cursors walking them look up their
+     * prefix again.
+     */
+    private static final class Node {
+
+        private final Node parent;
+        private final char key;
+        private final Map<Character, Node> children = new HashMap<Character, Node>();
+        private final NavigableSet<Entry> entries = new TreeSet<Entry>();
+        private boolean pruned = false;
+
+        Node(Node parent, char key) {
+            this.parent = parent;
+            this.key = key;
+        }
+
+        void prune() {
+            pruned = true;
+            for (Node child : children.values()) {
+                child.prune();
+            }
+        }
+    }
+
+    /**
+     * Walks the items matching a search in catalog order through the trie
+     * node of the walked word
+     */
+    public class Cursor implements Iterator<MenuItem> {
+
+        private final String walked;
+        private final Set<String> queryTokens;
+        private Node node;
+        private Entry position = new Entry(null, -1);
+        private MenuItem next;
+
+        private Cursor(String walked, Set<String> queryTokens) {
+            this.walked = walked;
+            this.queryTokens = queryTokens;
+        }
+
+        /**
+         * Returns if the cursor has already walked past an item's place in
+         * the catalog, so the item won't be returned by it
+         *
+         * @param item An indexed menu item
+         * @return True if the item is behind the cursor, false otherwise
+         */
+        public boolean hasPassed(MenuItem item) {
+            Entry entry = entries.get(item);
+            return entry != null && entry.compareTo(position) <= 0;
+        }
+
+        /*
+         * The entries being walked. The walked word's node is only looked up
+         * again if it didn't exist yet or has since been pruned.
+         */
+        private NavigableSet<Entry> getWalkedEntries() {
+            if (walked == null) {
+                return ordered;
+            }
+            if (node == null || node.pruned) {
+                node = find(walked);
+            }
+            return node == null ? null : node.entries;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null) {
+                NavigableSet<Entry> walkedEntries = getWalkedEntries();
+                Entry entry = walkedEntries == null ? null : walkedEntries.higher(position);
+                if (entry == null) {
+                    return false;
+                }
+                position = entry;
+                if (matchesAll(entry, queryTokens)) {
+                    next = entry.item;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public MenuItem next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            MenuItem item = next;
+            next = null;
+            return item;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
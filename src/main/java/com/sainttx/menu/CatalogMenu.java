@@ -0,0 +1,601 @@
+package com.sainttx.menu;
+
+import org.bukkit.ChatColor;
+import org.bukkit.Material;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * A paged menu over a large catalog of menu items that can be searched by
+ * title text and description. The bottom row of the menu holds the page
+ * and search controls, every other row shows the current page of results.
+ * <p/>
+ * Every player viewing the catalog is given their own {@link Session} with
+ * its own query, page and inventory, while the items and their search index
+ * are shared by every session and every copy of the menu. A session ends
+ * when the player closes it.
+ * <p/>
+ * Only the items on the page being viewed are rendered, and a search only
+ * finds as many matches as are needed to fill that page. Changes to the
+ * catalog only re-render a session when they affect what it is showing, and
+ * renders are run by the menu scheduler within its per-tick budget.
+ */
+public class CatalogMenu extends Menu {
+
+    private final String title;
+    private final int rows;
+    private final int pageSize;
+
+    /*
+     * The items in the catalog and the session of every player viewing it,
+     * shared with copies of this menu
+     */
+    private final CatalogIndex index;
+    private final Set<Session> catalogSessions;
+
+    /*
+     * The sessions opened through this menu, by player
+     */
+    private final Map<UUID, Session> sessions = new HashMap<UUID, Session>();
+
+    /**
+     * Creates a new catalog menu with the given title and number of rows. The
+     * last row is reserved for the page and search controls.
+     *
+     * @param title The title to display at the top of the menu
+     * @param rows  The number of rows of slots, at least 2
+     */
+    public CatalogMenu(String title, int rows) {
+        this(title, rows, null);
+    }
+
+    public CatalogMenu(String title, int rows, Menu parentMenu) {
+        this(title, rows, parentMenu, new CatalogIndex(), new LinkedHashSet<Session>());
+    }
+
+    private CatalogMenu(String title, int rows, Menu parentMenu, CatalogIndex index, Set<Session> catalogSessions) {
+        super(title, rows, parentMenu);
+        if (rows < 2) {
+            throw new IllegalArgumentException("a catalog menu needs at least 2 rows");
+        }
+        this.title = title;
+        this.rows = rows;
+        this.pageSize = (rows - 1) * 9;
+        this.index = index;
+        this.catalogSessions = catalogSessions;
+    }
+
+    /**
+     * Adds an item to the catalog. The item is only placed in a session when
+     * it is on the page being viewed.
+     *
+     * @param item The menu item to add
+     */
+    public void addCatalogItem(MenuItem item) {
+        addCatalogItems(Collections.singletonList(item));
+    }
+
+    /**
+     * Adds several items to the catalog, re-rendering each session at most
+     * once
+     *
+     * @param items The menu items to add
+     */
+    public void addCatalogItems(Collection<? extends MenuItem> items) {
+        for (MenuItem item : items) {
+            index.add(item);
+        }
+        for (Session session : catalogSessions) {
+            session.itemsAdded(items);
+        }
+    }
+
+    /**
+     * Removes an item from the catalog
+     *
+     * @param item The menu item to remove
+     * @return True if the item was in the catalog, false otherwise
+     */
+    public boolean removeCatalogItem(MenuItem item) {
+        if (!index.remove(item)) {
+            return false;
+        }
+        for (Session session : catalogSessions) {
+            session.itemRemoved(item);
+        }
+        return true;
+    }
+
+    /**
+     * Re-indexes an item after its text or descriptions have been changed,
+     * and re-renders it for every player it is shown to
+     *
+     * @param item The menu item that changed
+     */
+    public void updateCatalogItem(MenuItem item) {
+        if (!index.contains(item)) {
+            return;
+        }
+        index.add(item);
+        for (Session session : catalogSessions) {
+            session.itemUpdated(item);
+        }
+    }
+
+    /**
+     * Get the search index backing this catalog
+     *
+     * @return The catalog index
+     */
+    public CatalogIndex getIndex() {
+        return index;
+    }
+
+    /**
+     * Get the number of catalog items shown on each page
+     *
+     * @return The page size
+     */
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    /**
+     * Get a player's session of this catalog, starting a new one on the first
+     * page if they don't have one
+     *
+     * @param player The player
+     * @return The player's session
+     */
+    public Session getSession(Player player) {
+        Session session = sessions.get(player.getUniqueId());
+        if (session == null) {
+            session = new Session(player.getUniqueId());
+            sessions.put(player.getUniqueId(), session);
+            catalogSessions.add(session);
+        }
+        return session;
+    }
+
+    /**
+     * Get the sessions opened through this menu
+     *
+     * @return A copy of the open sessions
+     */
+    public List<Session> getSessions() {
+        return new ArrayList<Session>(sessions.values());
+    }
+
+    /**
+     * Opens the player's session of this catalog
+     *
+     * @param player The player to open the menu for
+     */
+    @Override
+    public void openMenu(Player player) {
+        getSession(player).openMenu(player);
+    }
+
+    /**
+     * Closes the player's session of this catalog
+     *
+     * @param player The player to close the menu for
+     */
+    @Override
+    public void closeMenu(Player player) {
+        Session session = sessions.get(player.getUniqueId());
+        if (session != null) {
+            session.closeMenu(player);
+        }
+    }
+
+    /**
+     * Closes the menu and asks the player to type a search query in chat.
+     * The menu is re-opened with the results once they answer. If there is no
+     * plugin to run the search with the menu is left open.
+     *
+     * @param player The player searching
+     */
+    public void promptSearch(Player player) {
+        if (!MenuAPI.getMenuAPI().awaitSearchInput(player, this)) {
+            player.sendMessage(ChatColor.RED + "Searching isn't available right now.");
+            return;
+        }
+        closeMenu(player);
+        player.sendMessage(ChatColor.YELLOW + "Type your search in chat, or type " + ChatColor.WHITE + "cancel"
+                + ChatColor.YELLOW + " to go back.");
+    }
+
+    /**
+     * Copies share this catalog's items, so the copy is cheap to make and
+     * changes to either are shown by both
+     */
+    @Override
+    protected Menu clone() {
+        CatalogMenu clone = new CatalogMenu(title, rows, getParent(), index, catalogSessions);
+        clone.setExitOnClickOutside(exitOnClickOutside());
+        clone.setMenuCloseBehaviour(getMenuCloseBehaviour());
+        return clone;
+    }
+
+    /**
+     * One player's view of the catalog, holding their query, page and the
+     * results found for them so far
+     */
+    public class Session extends Menu {
+
+        private final UUID playerId;
+        private String query = null;
+        private Set<String> queryTokens = Collections.emptySet();
+        private int page = 0;
+        private boolean ended = false;
+
+        /*
+         * The matches found so far for the current query in catalog order, the
+         * lazy search that finds the rest and whether it has run out of
+         * matches
+         */
+        private List<MenuItem> results = new ArrayList<MenuItem>();
+        private CatalogIndex.Cursor pendingResults;
+        private boolean resultsComplete = false;
+
+        /*
+         * The priority of the render waiting in the menu scheduler, if any, and
+         * a counter so superseded renders know to skip
+         */
+        private MenuScheduler.Priority queuedRender = null;
+        private int renderGeneration = 0;
+
+        private final MenuItem previousPageItem;
+        private final MenuItem searchItem;
+        private final MenuItem nextPageItem;
+
+        private Session(UUID playerId) {
+            super(title, rows, CatalogMenu.this.getParent());
+            this.playerId = playerId;
+            setExitOnClickOutside(CatalogMenu.this.exitOnClickOutside());
+            setMenuCloseBehaviour(CatalogMenu.this.getMenuCloseBehaviour());
+
+            this.previousPageItem = new MenuItem(ChatColor.YELLOW + "Previous Page", new ItemStack(Material.ARROW)) {
+                @Override
+                public void onClick(Player player, InventoryClickType clickType) {
+                    previousPage();
+                }
+            };
+            this.searchItem = new MenuItem(ChatColor.YELLOW + "Search", new ItemStack(Material.COMPASS)) {
+                @Override
+                public void onClick(Player player, InventoryClickType clickType) {
+                    if (clickType.isRightClick()) {
+                        clearSearch();
+                    } else {
+                        promptSearch(player);
+                    }
+                }
+            };
+            this.nextPageItem = new MenuItem(ChatColor.YELLOW + "Next Page", new ItemStack(Material.ARROW)) {
+                @Override
+                public void onClick(Player player, InventoryClickType clickType) {
+                    nextPage();
+                }
+            };
+            resetResults();
+            renderPage();
+        }
+
+        /**
+         * Get the catalog this session views
+         *
+         * @return The catalog menu
+         */
+        public CatalogMenu getCatalog() {
+            return CatalogMenu.this;
+        }
+
+        /**
+         * Filters the catalog to the items matching a query and returns to the
+         * first page
+         *
+         * @param query The search query, null or blank to show every item
+         */
+        public void search(String query) {
+            this.query = query == null || query.trim().isEmpty() ? null : query.trim();
+            this.queryTokens = CatalogIndex.tokenize(this.query);
+            this.page = 0;
+            resetResults();
+            requestRender(MenuScheduler.Priority.REFRESH);
+        }
+
+        /**
+         * Clears the current search so every item is shown
+         */
+        public void clearSearch() {
+            search(null);
+        }
+
+        /**
+         * Get the current search query
+         *
+         * @return The query, or null if the catalog isn't filtered
+         */
+        public String getQuery() {
+            return query;
+        }
+
+        /**
+         * Get the page being viewed, starting from 0
+         *
+         * @return The page index
+         */
+        public int getPage() {
+            return page;
+        }
+
+        /**
+         * Shows the given page if it has any results
+         *
+         * @param page The page index, starting from 0
+         * @return True if the page was changed, false otherwise
+         */
+        public boolean setPage(int page) {
+            if (page < 0 || (page > 0 && !findResults(page * pageSize + 1))) {
+                return false;
+            }
+            this.page = page;
+            requestRender(MenuScheduler.Priority.REFRESH);
+            return true;
+        }
+
+        /**
+         * Shows the next page of results
+         *
+         * @return True if there was a next page, false otherwise
+         */
+        public boolean nextPage() {
+            return setPage(page + 1);
+        }
+
+        /**
+         * Shows the previous page of results
+         *
+         * @return True if there was a previous page, false otherwise
+         */
+        public boolean previousPage() {
+            return setPage(page - 1);
+        }
+
+        /**
+         * Opens this session, or a new session of the catalog if this one has
+         * ended
+         *
+         * @param player The player to open the menu for
+         */
+        @Override
+        public void openMenu(Player player) {
+            if (ended) {
+                CatalogMenu.this.openMenu(player);
+            } else {
+                super.openMenu(player);
+            }
+        }
+
+        /*
+         * Ends the session once its player closes it, releasing the catalog
+         * items it was showing
+         */
+        @Override
+        protected void onClose(Player player) {
+            if (ended) {
+                return;
+            }
+            ended = true;
+            renderGeneration++;
+            queuedRender = null;
+            for (int slot = 0; slot < rows * 9; slot++) {
+                if (getMenuItems().containsKey(slot)) {
+                    removeMenuItem(slot);
+                }
+            }
+            if (sessions.get(playerId) == this) {
+                sessions.remove(playerId);
+            }
+            catalogSessions.remove(this);
+        }
+
+        @Override
+        protected Menu clone() {
+            return CatalogMenu.this.clone();
+        }
+
+        /*
+         * New items come last in the catalog, so they can only be visible if
+         * every earlier match was found and fits on or before this page
+         */
+        private void itemsAdded(Collection<? extends MenuItem> items) {
+            if (!resultsComplete) {
+                return;
+            }
+            for (MenuItem item : items) {
+                if (index.matches(item, queryTokens)) {
+                    resultsComplete = false;
+                    if (results.size() <= getVisibleEnd()) {
+                        requestRender(MenuScheduler.Priority.BUILD);
+                    }
+                    return;
+                }
+            }
+        }
+
+        private void itemRemoved(MenuItem item) {
+            int position = results.indexOf(item);
+            if (position >= 0) {
+                results.remove(position);
+                if (position <= getVisibleEnd()) {
+                    requestRender(MenuScheduler.Priority.BUILD);
+                }
+            }
+        }
+
+        private void itemUpdated(MenuItem item) {
+            boolean matches = index.matches(item, queryTokens);
+            int position = results.indexOf(item);
+
+            if (position >= 0) {
+                int slot = position - page * pageSize;
+                if (!matches) {
+                    results.remove(position);
+                    if (position <= getVisibleEnd()) {
+                        requestRender(MenuScheduler.Priority.BUILD);
+                    }
+                } else if (slot >= 0 && slot < pageSize && getMenuItems().get(slot) == item) {
+                    getInventory().setItem(slot, item.getItemStack());
+                }
+            } else if (matches) {
+                if (pendingResults.hasPassed(item)) {
+                    // The search won't find it again, so it goes straight into place
+                    position = -Collections.binarySearch(results, item, index.catalogOrder()) - 1;
+                    results.add(position, item);
+                    if (position <= getVisibleEnd()) {
+                        requestRender(MenuScheduler.Priority.BUILD);
+                    }
+                } else if (resultsComplete) {
+                    // It comes after every match found so far
+                    resultsComplete = false;
+                    if (results.size() <= getVisibleEnd()) {
+                        requestRender(MenuScheduler.Priority.BUILD);
+                    }
+                }
+            }
+        }
+
+        /*
+         * The index in the results of the last match that affects the page
+         * being viewed, which is the first match of the next page
+         */
+        private int getVisibleEnd() {
+            return (page + 1) * pageSize;
+        }
+
+        private void resetResults() {
+            results = new ArrayList<MenuItem>();
+            pendingResults = index.search(query);
+            resultsComplete = false;
+        }
+
+        /*
+         * Advances the lazy search until at least the given number of results
+         * are known, returning false if there aren't that many matches
+         */
+        private boolean findResults(int count) {
+            while (results.size() < count && pendingResults.hasNext()) {
+                results.add(pendingResults.next());
+            }
+            if (results.size() < count) {
+                resultsComplete = true;
+                return false;
+            }
+            return true;
+        }
+
+        /*
+         * Renders the page through the menu scheduler. Page and search changes
+         * run as refreshes, catalog changes as builds, and a queued render is
+         * only replaced by one with a higher priority.
+         */
+        private void requestRender(MenuScheduler.Priority priority) {
+            if (ended || (queuedRender != null && queuedRender.compareTo(priority) <= 0)) {
+                return;
+            }
+            final int generation = ++renderGeneration;
+            boolean ran = MenuAPI.getMenuAPI().getScheduler().execute(priority, new Runnable() {
+                @Override
+                public void run() {
+                    if (generation == renderGeneration) {
+                        queuedRender = null;
+                        renderPage();
+                    }
+                }
+            });
+            if (!ran) {
+                queuedRender = priority;
+            }
+        }
+
+        /*
+         * Brings the menu in line with the current page, only touching the
+         * slots whose item changed
+         */
+        private void renderPage() {
+            if (page > 0 && !findResults(page * pageSize + 1)) {
+                page = Math.max(0, (results.size() - 1) / pageSize);
+            }
+            int start = page * pageSize;
+            boolean hasNext = findResults(start + pageSize + 1);
+            boolean changed = false;
+
+            // Clear first so an item moving to an earlier slot isn't detached
+            // from the menu when its old slot is cleared
+            for (int slot = 0; slot < pageSize; slot++) {
+                MenuItem current = getMenuItems().get(slot);
+                if (current != null && current != getResult(start + slot)) {
+                    removeMenuItem(slot);
+                    changed = true;
+                }
+            }
+            for (int slot = 0; slot < pageSize; slot++) {
+                MenuItem wanted = getResult(start + slot);
+                if (wanted != null && getMenuItems().get(slot) == null) {
+                    addMenuItem(wanted, slot);
+                    changed = true;
+                }
+            }
+
+            List<String> searchDescription = new ArrayList<String>();
+            if (query != null) {
+                searchDescription.add(ChatColor.GRAY + "Showing results for: " + ChatColor.WHITE + query);
+                searchDescription.add(ChatColor.GRAY + "Right click to clear");
+            } else {
+                searchDescription.add(ChatColor.GRAY + "Click to search");
+            }
+            if (!searchDescription.equals(searchItem.getDescriptions())) {
+                searchItem.setDescriptions(searchDescription);
+            }
+
+            int controls = pageSize;
+
+            changed |= setControl(previousPageItem, controls, page > 0);
+            changed |= setControl(searchItem, controls + 4, true);
+            changed |= setControl(nextPageItem, controls + 8, hasNext);
+            if (changed) {
+                updateMenu();
+            }
+        }
+
+        private MenuItem getResult(int index) {
+            return index < results.size() ? results.get(index) : null;
+        }
+
+        private boolean setControl(MenuItem control, int slot, boolean visible) {
+            MenuItem current = getMenuItems().get(slot);
+            if (visible == (current == control)) {
+                return false;
+            }
+            if (current != null) {
+                removeMenuItem(slot);
+            }
+            if (visible) {
+                addMenuItem(control, slot);
+            }
+            return true;
+        }
+    }
+}
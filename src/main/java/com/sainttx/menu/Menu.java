@@ -26,6 +26,16 @@ public class Menu implements InventoryHolder {
     private boolean bypassMenuCloseBehaviour = false;
     private Menu parentMenu;
 
+    /*
+     * The frame last written for each slot holding an animated item
+     */
+    private Map<Integer, Integer> animationFrames = new HashMap<Integer, Integer>();
+
+    /*
+     * Whether an update of this menu is waiting in the menu scheduler
+     */
+    private boolean updateQueued = false;
+
     /**
      * Creates a new PopupMenu with the given title and number of rows of slots
      * for menu item. There are 9 slots per row.
@@ -120,6 +130,11 @@ public boolean addMenuItem(MenuItem item, int index) {
         getInventory().setItem(index, item.getItemStack());
         items.put(index, item);
         item.addToMenu(this);
+        if (item instanceof AnimatedMenuItem) {
+            AnimatedMenuItem animated = (AnimatedMenuItem) item;
+            animationFrames.put(index, animated.getFrameIndex(MenuAPI.getMenuAPI().getAnimationTick()));
+            MenuAPI.getMenuAPI().registerAnimatedMenu(this);
+        }
         return true;
     }
 
@@ -154,9 +169,45 @@ public boolean removeMenuItem(int index) {
         }
         getInventory().clear(index);
         items.remove(index).removeFromMenu(this);
+        animationFrames.remove(index);
         return true;
     }
 
+    /**
+     * Returns if this menu contains any animated menu items
+     *
+     * @return True if this menu has animated items, false otherwise
+     */
+    public boolean hasAnimations() {
+        return !animationFrames.isEmpty();
+    }
+
+    /**
+     * Advances the animated items in this menu to the given animation tick,
+     * only writing the slots whose frame changed
+     *
+     * @param tick The animation tick
+     */
+    protected void tickAnimations(long tick) {
+        for (Entry<Integer, Integer> entry : animationFrames.entrySet()) {
+            AnimatedMenuItem item = (AnimatedMenuItem) items.get(entry.getKey());
+            int frame = item.getFrameIndex(tick);
+            if (frame != entry.getValue()) {
+                entry.setValue(frame);
+                getInventory().setItem(entry.getKey(), item.getFrame(frame));
+            }
+        }
+    }
+
+    /**
+     * Called when a player closes this menu, before its close behaviour is
+     * run
+     *
+     * @param player The player closing the menu
+     */
+    protected void onClose(Player player) {
+    }
+
     protected void selectMenuItem(Player player, int index, InventoryClickType clickType) {
         if (items.containsKey(index)) {
             MenuItem item = items.get(index);
@@ -254,11 +305,22 @@ protected Menu clone() {
 
     /**
      * Updates this menu after changes are made so that viewers can instantly
-     * see them
+     * see them. If the menu scheduler has no time left in this tick the update
+     * is deferred, and further updates are merged into it until it is sent.
      */
     public void updateMenu() {
-        for (HumanEntity entity : getInventory().getViewers()) {
-            ((Player) entity).updateInventory();
+        if (updateQueued) {
+            return;
         }
+        boolean ran = MenuAPI.getMenuAPI().getScheduler().execute(MenuScheduler.Priority.REFRESH, new Runnable() {
+            @Override
+            public void run() {
+                updateQueued = false;
+                for (HumanEntity entity : getInventory().getViewers()) {
+                    ((Player) entity).updateInventory();
+                }
+            }
+        });
+        updateQueued = !ran;
     }
 }
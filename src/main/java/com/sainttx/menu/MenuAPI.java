@@ -9,10 +9,23 @@
 import org.bukkit.event.inventory.InventoryAction;
 import org.bukkit.event.inventory.InventoryClickEvent;
 import org.bukkit.event.inventory.InventoryCloseEvent;
+import org.bukkit.event.inventory.InventoryOpenEvent;
 import org.bukkit.event.inventory.InventoryType;
+import org.bukkit.event.player.AsyncPlayerChatEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
 import org.bukkit.inventory.Inventory;
+import org.bukkit.plugin.Plugin;
 import org.bukkit.scheduler.BukkitRunnable;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Created by Matthew on 22/10/2014.
@@ -24,6 +37,36 @@ public class MenuAPI implements Listener {
      */
     private static MenuAPI i = null;
 
+    /*
+     * Catalog menus waiting for a player to type a search query in chat, and
+     * how long a player has to answer before their chat is left alone
+     */
+    private final Map<UUID, PendingSearch> pendingSearches = new ConcurrentHashMap<UUID, PendingSearch>();
+    private long searchInputTimeout = TimeUnit.SECONDS.toMillis(30);
+
+    /*
+     * Menus containing animated items, held weakly so menus that are dropped
+     * without being destroyed don't leak
+     */
+    private final Set<Menu> animatedMenus = Collections.newSetFromMap(new WeakHashMap<Menu, Boolean>());
+
+    /*
+     * The shared task advancing every animated menu, and the number of ticks
+     * it has run for
+     */
+    private BukkitTask animationTask;
+    private long animationTick = 0;
+
+    /*
+     * Runs deferrable menu work against a per-tick time budget
+     */
+    private final MenuScheduler scheduler = new MenuScheduler();
+
+    /*
+     * The plugin that owns the tasks MenuAPI schedules
+     */
+    private Plugin plugin;
+
     /**
      * Singleton constructor
      */
@@ -66,6 +109,11 @@ public Menu cloneMenu(Menu menu) {
      * @param menu The menu to destroy
      */
     public void removeMenu(Menu menu) {
+        if (menu instanceof CatalogMenu) {
+            for (Menu session : ((CatalogMenu) menu).getSessions()) {
+                removeMenu(session);
+            }
+        }
         for (HumanEntity viewer : menu.getInventory().getViewers()) {
             if (viewer instanceof Player) {
                 menu.closeMenu((Player) viewer);
@@ -75,11 +123,101 @@ public void removeMenu(Menu menu) {
         }
     }
 
+    /**
+     * Sets the plugin that owns the tasks MenuAPI schedules. If this isn't
+     * called the plugin named "Core" is used once it is loaded. The menu
+     * scheduler's task is restarted under the new plugin when it is next
+     * needed.
+     *
+     * @param plugin The owning plugin
+     */
+    public void setPlugin(Plugin plugin) {
+        if (plugin != this.plugin) {
+            scheduler.stop();
+        }
+        this.plugin = plugin;
+    }
+
+    /**
+     * Get the plugin that owns the tasks MenuAPI schedules
+     *
+     * @return The owning plugin, or null if none is set and "Core" isn't
+     * loaded
+     */
+    public Plugin getPlugin() {
+        if (plugin == null) {
+            plugin = Bukkit.getPluginManager().getPlugin("Core");
+        }
+        return plugin;
+    }
+
+    /**
+     * Get the scheduler that runs menu work against a per-tick time budget.
+     * Click handlers, menu switches and refreshes are run through it.
+     *
+     * @return The menu scheduler
+     */
+    public MenuScheduler getScheduler() {
+        return scheduler;
+    }
+
+    /**
+     * Get the current tick of the shared animation ticker
+     *
+     * @return The animation tick
+     */
+    public long getAnimationTick() {
+        return animationTick;
+    }
+
+    /**
+     * Adds a menu to the shared animation ticker, starting the ticker if it
+     * isn't already running. Menus are added automatically when an animated
+     * item is placed in them.
+     *
+     * @param menu The menu containing animated items
+     */
+    public void registerAnimatedMenu(Menu menu) {
+        animatedMenus.add(menu);
+        // Without a plugin the items stay on their first frame until one is loaded
+        if (animationTask == null && getPlugin() != null) {
+            animationTask = new BukkitRunnable() {
+                @Override
+                public void run() {
+                    tickAnimations();
+                }
+            }.runTaskTimer(getPlugin(), 1L, 1L);
+        }
+    }
+
+    /*
+     * Advances every animated menu that is being viewed, stopping the ticker
+     * once there are no animated menus left
+     */
+    private void tickAnimations() {
+        animationTick++;
+        Iterator<Menu> iterator = animatedMenus.iterator();
+        while (iterator.hasNext()) {
+            Menu menu = iterator.next();
+            if (!menu.hasAnimations()) {
+                iterator.remove();
+            } else if (!menu.getInventory().getViewers().isEmpty()) {
+                menu.tickAnimations(animationTick);
+            }
+        }
+        if (animatedMenus.isEmpty()) {
+            animationTask.cancel();
+            animationTask = null;
+        }
+    }
+
     /**
      * Due to a bug with inventories, switching from one menu to another in the
      * same tick causes glitchiness. In order to prevent this, the opening must
      * be done in the next tick. This is a convenience method to perform this
-     * task for you.
+     * task for you. The new menu is opened with switch priority by the menu
+     * scheduler, so it may be opened later if the tick's budget is used up.
+     * If the player opens anything else before then, the switch is dropped.
      *
      * @param player   The player switching menus
      * @param fromMenu The menu the player is currently viewing
@@ -87,12 +225,52 @@ public void removeMenu(Menu menu) {
      */
     public static void switchMenu(final Player player, Menu fromMenu, final Menu toMenu) {
         fromMenu.closeMenu(player);
-        new BukkitRunnable() {
+        final Inventory closedTo = player.getOpenInventory().getTopInventory();
+        getMenuAPI().getScheduler().schedule(MenuScheduler.Priority.SWITCH, new Runnable() {
             @Override
             public void run() {
-                toMenu.openMenu(player);
+                // The player may have quit or opened something else before their turn came
+                if (player.isOnline() && player.getOpenInventory().getTopInventory().equals(closedTo))
+                    toMenu.openMenu(player);
             }
-        }.runTask(Bukkit.getPluginManager().getPlugin("Core"));
+        });
+    }
+
+    /**
+     * Waits for a player to type a search query in chat, then searches the
+     * catalog menu and re-opens it for them
+     *
+     * @param player The player searching
+     * @param menu   The catalog menu to search
+     * @return True if the player's next chat message will be used as the
+     * query, false if there is no plugin to run the search with
+     */
+    public boolean awaitSearchInput(Player player, CatalogMenu menu) {
+        // Chat arrives off the main thread, so the plugin is looked up here
+        Plugin owner = getPlugin();
+        if (owner == null) {
+            return false;
+        }
+        long now = System.currentTimeMillis();
+        Iterator<PendingSearch> iterator = pendingSearches.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().hasExpired(now)) {
+                iterator.remove();
+            }
+        }
+        pendingSearches.put(player.getUniqueId(), new PendingSearch(menu, owner, now + searchInputTimeout));
+        return true;
+    }
+
+    /**
+     * Sets how long players have to type a search query after being asked.
+     * Chat sent after this is treated as normal chat.
+     *
+     * @param time The time to wait
+     * @param unit The unit of the time to wait
+     */
+    public void setSearchInputTimeout(long time, TimeUnit unit) {
+        this.searchInputTimeout = unit.toMillis(time);
     }
 
     @EventHandler(priority = EventPriority.LOWEST)
@@ -117,18 +295,30 @@ public void onMenuItemClicked(final InventoryClickEvent event) {
                     break;
             }
 
-            Menu menu = (Menu) inventory.getHolder();
+            final Menu menu = (Menu) inventory.getHolder();
             if (event.getWhoClicked() instanceof Player) {
-                Player player = (Player) event.getWhoClicked();
+                final Player player = (Player) event.getWhoClicked();
                 if (event.getSlotType() == InventoryType.SlotType.OUTSIDE) {
                     // Quick exit for a menu, click outside of it
                     if (menu.exitOnClickOutside())
                         menu.closeMenu(player);
                 } else {
-                    int index = event.getRawSlot();
+                    final int index = event.getRawSlot();
                     if (index < inventory.getSize()) {
-                        if (event.getAction() != InventoryAction.NOTHING)
-                            menu.selectMenuItem(player, index, InventoryClickType.fromInventoryAction(event.getAction()));
+                        final MenuItem clicked = menu.getMenuItems().get(index);
+                        if (clicked != null && event.getAction() != InventoryAction.NOTHING) {
+                            final InventoryClickType clickType = InventoryClickType.fromInventoryAction(event.getAction());
+                            scheduler.execute(MenuScheduler.Priority.CLICK, new Runnable() {
+                                @Override
+                                public void run() {
+                                    // Deferred clicks are dropped if the player has left the menu or the
+                                    // item they clicked is no longer in that slot
+                                    if (player.isOnline() && menu.getInventory().getViewers().contains(player)
+                                            && menu.getMenuItems().get(index) == clicked)
+                                        menu.selectMenuItem(player, index, clickType);
+                                }
+                            });
+                        }
                     } else {
                         // If they want to mess with their inventory they don't need to do so in a menu
                         if (menu.exitOnClickOutside())
@@ -145,6 +335,7 @@ public void onMenuClosed(InventoryCloseEvent event) {
             Inventory inventory = event.getInventory();
             if (inventory.getHolder() instanceof Menu) {
                 Menu menu = (Menu) inventory.getHolder();
+                menu.onClose((Player) event.getPlayer());
                 MenuCloseBehaviour menuCloseBehaviour = menu.getMenuCloseBehaviour();
                 if (menuCloseBehaviour != null) {
                     menuCloseBehaviour.onClose((Player) event.getPlayer(), menu, menu.bypassMenuCloseBehaviour());
@@ -153,8 +344,39 @@ public void onMenuClosed(InventoryCloseEvent event) {
         }
     }
 
+    @EventHandler(priority = EventPriority.LOWEST, ignoreCancelled = true)
+    public void onCatalogSearchInput(AsyncPlayerChatEvent event) {
+        final Player player = event.getPlayer();
+        PendingSearch pending = pendingSearches.remove(player.getUniqueId());
+        if (pending == null || pending.hasExpired(System.currentTimeMillis()) || !pending.plugin.isEnabled())
+            return;
+
+        final CatalogMenu menu = pending.menu;
+
+        event.setCancelled(true);
+        final String query = event.getMessage();
+        // Chat is handled off the main thread so the menu must be searched in the next tick
+        new BukkitRunnable() {
+            @Override
+            public void run() {
+                if (!player.isOnline())
+                    return;
+                if (!query.trim().equalsIgnoreCase("cancel"))
+                    menu.getSession(player).search(query);
+                menu.openMenu(player);
+            }
+        }.runTask(pending.plugin);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onInventoryOpenCancelSearch(InventoryOpenEvent event) {
+        // Opening something else means the player has moved on from searching
+        pendingSearches.remove(event.getPlayer().getUniqueId());
+    }
+
     @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
     public void onPlayerLogoutCloseMenu(PlayerQuitEvent event) {
+        pendingSearches.remove(event.getPlayer().getUniqueId());
         if (event.getPlayer().getOpenInventory() == null ||
                 event.getPlayer().getOpenInventory().getTopInventory().getHolder() instanceof Menu == false)
             return;
@@ -165,6 +387,27 @@ public void onPlayerLogoutCloseMenu(PlayerQuitEvent event) {
         event.getPlayer().closeInventory();
     }
 
+    /*
+     * A catalog menu waiting for search input, the plugin to run the search
+     * with and when the wait ends
+     */
+    private static class PendingSearch {
+
+        private final CatalogMenu menu;
+        private final Plugin plugin;
+        private final long expiresAt;
+
+        PendingSearch(CatalogMenu menu, Plugin plugin, long expiresAt) {
+            this.menu = menu;
+            this.plugin = plugin;
+            this.expiresAt = expiresAt;
+        }
+
+        boolean hasExpired(long now) {
+            return now >= expiresAt;
+        }
+    }
+
     public interface MenuCloseBehaviour {
         /**
          * Called when a player closes a menu
@@ -6,6 +6,7 @@
 import org.bukkit.inventory.meta.ItemMeta;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -140,6 +141,15 @@ public String getText() {
         return text;
     }
 
+    /**
+     * Get the lines of text displayed as the description of this menu item
+     *
+     * @return An unmodifiable view of the description lines
+     */
+    public List<String> getDescriptions() {
+        return Collections.unmodifiableList(descriptions);
+    }
+
     /**
      * Sets the detailed description of a menu item to display on mouse over.
      * <p/>
@@ -149,7 +159,8 @@ public String getText() {
      * @param lines The lines of text to display as a description
      */
     public void setDescriptions(List<String> lines) {
-        descriptions = lines;
+        descriptions = new ArrayList<String>(lines);
+        onDescriptionsChanged();
     }
 
     /**
@@ -163,10 +174,31 @@ public void setDescriptions(List<String> lines) {
      */
     public void addDescription(String line) {
         descriptions.add(line);
+        onDescriptionsChanged();
+    }
+
+    /**
+     * Called after the description changes, re-rendering this item in the
+     * slot it is shown in
+     */
+    protected void onDescriptionsChanged() {
+        if (menu != null && slot != null && menu.getMenuItems().get(slot) == this) {
+            menu.getInventory().setItem(slot, getItemStack());
+        }
     }
 
     protected ItemStack getItemStack() {
-        ItemStack slot = getIcon().clone();
+        return createItemStack(getIcon());
+    }
+
+    /**
+     * Renders an icon with this menu item's title text and description
+     *
+     * @param icon The icon to render
+     * @return A copy of the icon showing this item's text
+     */
+    protected ItemStack createItemStack(ItemStack icon) {
+        ItemStack slot = icon.clone();
         ItemMeta meta = slot.getItemMeta();
         if (meta.hasLore())
             meta.getLore().addAll(descriptions);
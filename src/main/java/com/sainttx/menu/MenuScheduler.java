@@ -0,0 +1,319 @@
+package com.sainttx.menu;
+
+import org.bukkit.Bukkit;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitRunnable;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+/**
+ * Runs menu work against a time budget for each tick. Work that doesn't fit
+ * in the budget is queued and carried into the following ticks, where it
+ * runs in priority order.
+ * <p/>
+ * Part of each tick's budget is reserved for clicks. Other work stops once
+ * only the reserve is left, and clicks can use the reserve even if other
+ * work has already overrun the budget.
+ */
+public class MenuScheduler {
+
+    /**
+     * The priority of menu work, from the most to the least latency sensitive
+     */
+    public enum Priority {
+        /**
+         * Click handlers, which players expect to respond immediately
+         */
+        CLICK,
+        /**
+         * Opening the menu a player is switching to
+         */
+        SWITCH,
+        /**
+         * Resending menus to their viewers after changes
+         */
+        REFRESH,
+        /**
+         * Building menus ahead of time
+         */
+        BUILD
+    }
+
+    private final Map<Priority, Queue<QueuedTask>> queues = new EnumMap<Priority, Queue<QueuedTask>>(Priority.class);
+    private long budgetNanos = TimeUnit.MILLISECONDS.toNanos(5);
+    private long clickReserveNanos = TimeUnit.MILLISECONDS.toNanos(2);
+
+    /*
+     * The task starting each tick's budget and running queued work, the
+     * number of ticks it has run and the time spent on all menu work and on
+     * clicks since it last ran
+     */
+    private BukkitTask tickTask;
+    private long tick = 0;
+    private long usedNanos = 0;
+    private long clickNanos = 0;
+
+    private final long[] executedTasks = new long[Priority.values().length];
+    private final long[] deferredTasks = new long[Priority.values().length];
+    private long carriedTicks = 0;
+    private long maxDeferredTicks = 0;
+
+    protected MenuScheduler() {
+        for (Priority priority : Priority.values()) {
+            queues.put(priority, new ArrayDeque<QueuedTask>());
+        }
+    }
+
+    /**
+     * Sets the time menu work may take each tick. Work over the budget is
+     * carried into the next tick.
+     *
+     * @param time The time budget
+     * @param unit The unit of the time budget
+     */
+    public void setTimeBudget(long time, TimeUnit unit) {
+        this.budgetNanos = unit.toNanos(time);
+    }
+
+    /**
+     * Get the time menu work may take each tick
+     *
+     * @param unit The unit to return the budget in
+     * @return The time budget
+     */
+    public long getTimeBudget(TimeUnit unit) {
+        return unit.convert(budgetNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Sets the part of each tick's budget only clicks may use
+     *
+     * @param time The time reserved for clicks
+     * @param unit The unit of the reserved time
+     */
+    public void setClickReserve(long time, TimeUnit unit) {
+        this.clickReserveNanos = unit.toNanos(time);
+    }
+
+    /**
+     * Get the part of each tick's budget only clicks may use
+     *
+     * @param unit The unit to return the reserve in
+     * @return The time reserved for clicks
+     */
+    public long getClickReserve(TimeUnit unit) {
+        return unit.convert(clickReserveNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Runs menu work now if this tick's budget allows it and no work of the
+     * same or a higher priority is waiting, otherwise queues it. If there is
+     * no plugin to run the scheduler with, the work is always run now.
+     *
+     * @param priority The priority of the work
+     * @param task     The work to run
+     * @return True if the work was run now, false if it was queued
+     */
+    public boolean execute(Priority priority, Runnable task) {
+        if (!start() || (hasBudget(priority) && !hasQueuedTasks(priority))) {
+            long start = System.nanoTime();
+            try {
+                task.run();
+            } finally {
+                recordTime(priority, System.nanoTime() - start);
+            }
+            return true;
+        }
+        schedule(priority, task);
+        return false;
+    }
+
+    /**
+     * Queues menu work to run in the next tick, or later if the budget of the
+     * next tick is used up
+     *
+     * @param priority The priority of the work
+     * @param task     The work to run
+     * @throws IllegalStateException If there is no plugin to run the
+     *                               scheduler with
+     */
+    public void schedule(Priority priority, Runnable task) {
+        if (!start()) {
+            throw new IllegalStateException("no plugin is available to run queued menu work");
+        }
+        queues.get(priority).add(new QueuedTask(task, tick));
+        deferredTasks[priority.ordinal()]++;
+    }
+
+    /*
+     * Starts the task that resets the budget every tick, returning false if
+     * there is no plugin to run it with. It keeps running once started so the
+     * budget always covers a single tick.
+     */
+    private boolean start() {
+        if (tickTask == null) {
+            Plugin plugin = MenuAPI.getMenuAPI().getPlugin();
+            if (plugin == null) {
+                return false;
+            }
+            tickTask = new BukkitRunnable() {
+                @Override
+                public void run() {
+                    runQueuedTasks();
+                }
+            }.runTaskTimer(plugin, 1L, 1L);
+        }
+        return true;
+    }
+
+    /*
+     * Stops the task that runs queued work, such as when the plugin owning it
+     * changes or is disabled. Queued work is kept and runs once the scheduler
+     * is next started.
+     */
+    void stop() {
+        if (tickTask != null) {
+            tickTask.cancel();
+            tickTask = null;
+        }
+    }
+
+    /*
+     * Returns if this tick's budget leaves room for work of a priority
+     */
+    private boolean hasBudget(Priority priority) {
+        if (priority == Priority.CLICK) {
+            return usedNanos < budgetNanos || clickNanos < clickReserveNanos;
+        }
+        return usedNanos < budgetNanos - clickReserveNanos;
+    }
+
+    private void recordTime(Priority priority, long nanos) {
+        usedNanos += nanos;
+        if (priority == Priority.CLICK) {
+            clickNanos += nanos;
+        }
+        executedTasks[priority.ordinal()]++;
+    }
+
+    /*
+     * Returns if any work of the given or a higher priority is queued
+     */
+    private boolean hasQueuedTasks(Priority priority) {
+        for (Priority queued : Priority.values()) {
+            if (queued.compareTo(priority) > 0) {
+                break;
+            }
+            if (!queues.get(queued).isEmpty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /*
+     * Starts a new tick's budget and runs queued work until it is used up.
+     * At least one task runs every tick so a task larger than the budget
+     * can't stall the queue.
+     */
+    private void runQueuedTasks() {
+        tick++;
+        usedNanos = 0;
+        clickNanos = 0;
+        boolean ranTask = false;
+        for (Priority priority : Priority.values()) {
+            Queue<QueuedTask> queue = queues.get(priority);
+            // Work queued by tasks in this tick waits for the next one
+            while (!queue.isEmpty() && queue.peek().queuedTick < tick) {
+                if (ranTask && !hasBudget(priority)) {
+                    carriedTicks++;
+                    return;
+                }
+                QueuedTask task = queue.poll();
+                maxDeferredTicks = Math.max(maxDeferredTicks, tick - task.queuedTick);
+                long start = System.nanoTime();
+                try {
+                    task.task.run();
+                } catch (Throwable throwable) {
+                    Bukkit.getLogger().log(Level.SEVERE, "Error running queued menu task", throwable);
+                } finally {
+                    recordTime(priority, System.nanoTime() - start);
+                    ranTask = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the number of tasks waiting to run
+     *
+     * @return The queued task count
+     */
+    public int getQueuedTasks() {
+        int queued = 0;
+        for (Queue<QueuedTask> queue : queues.values()) {
+            queued += queue.size();
+        }
+        return queued;
+    }
+
+    /**
+     * Get the number of tasks of a priority that have run
+     *
+     * @param priority The task priority
+     * @return The executed task count
+     */
+    public long getExecutedTasks(Priority priority) {
+        return executedTasks[priority.ordinal()];
+    }
+
+    /**
+     * Get the number of tasks of a priority that were queued instead of being
+     * run immediately
+     *
+     * @param priority The task priority
+     * @return The deferred task count
+     */
+    public long getDeferredTasks(Priority priority) {
+        return deferredTasks[priority.ordinal()];
+    }
+
+    /**
+     * Get the number of ticks that ended with work left over for the next
+     * tick
+     *
+     * @return The carried tick count
+     */
+    public long getCarriedTicks() {
+        return carriedTicks;
+    }
+
+    /**
+     * Get the longest any task has waited in the queue
+     *
+     * @return The wait in ticks
+     */
+    public long getMaxDeferredTicks() {
+        return maxDeferredTicks;
+    }
+
+    /*
+     * Queued work and the tick it was queued on
+     */
+    private static class QueuedTask {
+
+        private final Runnable task;
+        private final long queuedTick;
+
+        QueuedTask(Runnable task, long queuedTick) {
+            this.task = task;
+            this.queuedTick = queuedTick;
+        }
+    }
+}
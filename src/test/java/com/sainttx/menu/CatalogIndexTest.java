@@ -0,0 +1,229 @@
+package com.sainttx.menu;
+
+import com.sainttx.menu.simulation.SimulatedServer;
+import org.bukkit.ChatColor;
+import org.bukkit.Material;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CatalogIndexTest {
+
+    private CatalogIndex index;
+
+    @Before
+    public void setUp() {
+        index = new CatalogIndex();
+    }
+
+    @Test
+    public void prefixesMatchIgnoringCaseAndColour() {
+        MenuItem sword = item(ChatColor.RED + "Diamond Sword");
+        MenuItem pick = item("Iron Pickaxe");
+        index.add(sword);
+        index.add(pick);
+
+        assertEquals(Arrays.asList(sword), collect(index.search("DIA")));
+        assertEquals(Arrays.asList(pick), collect(index.search("pick")));
+        assertEquals(new ArrayList<MenuItem>(), collect(index.search("red")));
+    }
+
+    @Test
+    public void blankQueryReturnsEveryItemInCatalogOrder() {
+        MenuItem first = item("Zombie Head");
+        MenuItem second = item("Apple");
+        MenuItem third = item("Bow");
+        index.add(first);
+        index.add(second);
+        index.add(third);
+
+        assertEquals(Arrays.asList(first, second, third), collect(index.search(null)));
+        assertEquals(Arrays.asList(first, second, third), collect(index.search("  ")));
+    }
+
+    @Test
+    public void everyQueryWordMustMatch() {
+        MenuItem ironSword = item("Iron Sword");
+        MenuItem ironPick = item("Iron Pickaxe");
+        MenuItem stoneSword = item("Stone Sword");
+        index.add(ironSword);
+        index.add(ironPick);
+        index.add(stoneSword);
+
+        assertEquals(Arrays.asList(ironSword), collect(index.search("sw iron")));
+        assertTrue(index.matches(ironSword, "iron sw"));
+        assertFalse(index.matches(stoneSword, "iron sw"));
+    }
+
+    @Test
+    public void itemsMatchingSeveralTokensAreReturnedOnce() {
+        MenuItem item = item("Gold Golden Goldfish");
+        index.add(item);
+
+        assertEquals(Arrays.asList(item), collect(index.search("gol")));
+    }
+
+    @Test
+    public void descriptionsAreSearched() {
+        MenuItem item = item("Potion");
+        item.addDescription(ChatColor.GRAY + "Grants night-vision");
+        index.add(item);
+
+        assertEquals(Arrays.asList(item), collect(index.search("vision")));
+    }
+
+    @Test
+    public void iconNamesAndLoreAreSearched() {
+        SimulatedServer.install();
+        ItemStack icon = new ItemStack(Material.PAPER);
+        ItemMeta meta = icon.getItemMeta();
+        meta.setDisplayName(ChatColor.YELLOW + "Enchanted Book");
+        meta.setLore(Arrays.asList("Sharpness V"));
+        icon.setItemMeta(meta);
+        MenuItem item = new MenuItem(icon) {
+            @Override
+            public void onClick(Player player, InventoryClickType clickType) {
+            }
+        };
+        index.add(item);
+
+        assertEquals(Arrays.asList(item), collect(index.search("enchanted")));
+        assertEquals(Arrays.asList(item), collect(index.search("sharp")));
+    }
+
+    @Test
+    public void removedItemsAreSkipped() {
+        MenuItem first = item("Red Wool");
+        MenuItem second = item("Red Dye");
+        MenuItem third = item("Red Sand");
+        index.add(first);
+        index.add(second);
+        index.add(third);
+
+        Iterator<MenuItem> cursor = index.search("red");
+        assertEquals(first, cursor.next());
+        assertTrue(index.remove(second));
+        assertEquals(third, cursor.next());
+        assertFalse(cursor.hasNext());
+
+        assertFalse(index.remove(second));
+        assertFalse(index.contains(second));
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    public void openCursorsFindItemsAddedAfterThem() {
+        MenuItem first = item("Oak Log");
+        index.add(first);
+        Iterator<MenuItem> cursor = index.search("oak");
+        assertEquals(first, cursor.next());
+        assertFalse(cursor.hasNext());
+
+        MenuItem second = item("Oak Planks");
+        index.add(second);
+        assertTrue(cursor.hasNext());
+        assertEquals(second, cursor.next());
+    }
+
+    @Test
+    public void openCursorsFindItemsForPrefixesThatWereEmptied() {
+        MenuItem first = item("Oak Log");
+        index.add(first);
+        Iterator<MenuItem> cursor = index.search("oak");
+        assertEquals(first, cursor.next());
+
+        index.remove(first);
+        assertFalse(cursor.hasNext());
+        MenuItem second = item("Oak Planks");
+        index.add(second);
+        assertEquals(second, cursor.next());
+    }
+
+    @Test
+    public void openCursorsFindPrefixesThatDidNotExistYet() {
+        Iterator<MenuItem> cursor = index.search("bir");
+        assertFalse(cursor.hasNext());
+
+        MenuItem birch = item("Birch Log");
+        index.add(birch);
+        assertEquals(birch, cursor.next());
+    }
+
+    @Test
+    public void removingAnItemKeepsItsSharedPrefixes() {
+        MenuItem gold = item("Gold");
+        MenuItem golden = item("Golden Apple");
+        index.add(gold);
+        index.add(golden);
+
+        index.remove(golden);
+        assertEquals(Arrays.asList(gold), collect(index.search("go")));
+        assertEquals(new ArrayList<MenuItem>(), collect(index.search("golde")));
+    }
+
+    @Test
+    public void reAddingAnItemReindexesItAndKeepsItsPlace() {
+        MenuItem first = item("Torch");
+        MenuItem second = item("Lantern");
+        index.add(first);
+        index.add(second);
+
+        first.addDescription("Lights the way");
+        index.add(first);
+
+        assertEquals(Arrays.asList(first), collect(index.search("lights")));
+        assertEquals(Arrays.asList(first, second), index.getItems());
+
+        first.setDescriptions(new ArrayList<String>());
+        index.add(first);
+        assertEquals(new ArrayList<MenuItem>(), collect(index.search("lights")));
+    }
+
+    @Test
+    public void cursorsReportTheItemsTheyHavePassed() {
+        MenuItem first = item("Cobblestone");
+        MenuItem second = item("Cobweb");
+        index.add(first);
+        index.add(second);
+
+        CatalogIndex.Cursor cursor = index.search("cob");
+        assertFalse(cursor.hasPassed(first));
+        cursor.next();
+        assertTrue(cursor.hasPassed(first));
+        assertFalse(cursor.hasPassed(second));
+    }
+
+    @Test
+    public void tokenizeSplitsOnPunctuation() {
+        assertEquals(Arrays.asList("tnt", "x64"),
+                new ArrayList<String>(CatalogIndex.tokenize(ChatColor.GREEN + "TNT (x64)")));
+        assertTrue(CatalogIndex.tokenize(null).isEmpty());
+    }
+
+    private static List<MenuItem> collect(Iterator<MenuItem> cursor) {
+        List<MenuItem> items = new ArrayList<MenuItem>();
+        while (cursor.hasNext()) {
+            items.add(cursor.next());
+        }
+        return items;
+    }
+
+    private static MenuItem item(String text) {
+        return new MenuItem(text) {
+            @Override
+            public void onClick(Player player, InventoryClickType clickType) {
+            }
+        };
+    }
+}
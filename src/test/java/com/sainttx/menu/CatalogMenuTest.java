@@ -0,0 +1,192 @@
+package com.sainttx.menu;
+
+import com.sainttx.menu.simulation.SimulatedServer;
+import org.bukkit.entity.Player;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class CatalogMenuTest {
+
+    private SimulatedServer server;
+    private CatalogMenu menu;
+    private List<MenuItem> items;
+    private Player player;
+    private CatalogMenu.Session session;
+
+    @Before
+    public void setUp() {
+        server = SimulatedServer.install();
+        runQueuedRenders();
+        menu = new CatalogMenu("Shop", 2);
+        items = new ArrayList<MenuItem>();
+        for (int i = 0; i < 20; i++) {
+            items.add(item((i % 2 == 0 ? "Red " : "Blue ") + "Item " + i));
+        }
+        menu.addCatalogItems(items);
+        player = server.createPlayer("Shopper");
+        menu.openMenu(player);
+        session = menu.getSession(player);
+        runQueuedRenders();
+    }
+
+    @Test
+    public void onlyTheViewedPageIsPlaced() {
+        assertEquals(9, menu.getPageSize());
+        for (int slot = 0; slot < 9; slot++) {
+            assertEquals(items.get(slot), session.getMenuItems().get(slot));
+        }
+        assertNull(items.get(9).getMenu());
+
+        assertTrue(session.nextPage());
+        runQueuedRenders();
+        assertEquals(items.get(9), session.getMenuItems().get(0));
+        assertTrue(session.nextPage());
+        runQueuedRenders();
+        assertEquals(items.get(18), session.getMenuItems().get(0));
+        assertNull(session.getMenuItems().get(2));
+        assertFalse(session.nextPage());
+    }
+
+    @Test
+    public void searchingFiltersAndReturnsToTheFirstPage() {
+        session.nextPage();
+        runQueuedRenders();
+        session.search("blue");
+        runQueuedRenders();
+
+        assertEquals(0, session.getPage());
+        for (int slot = 0; slot < 9; slot++) {
+            assertEquals(items.get(slot * 2 + 1), session.getMenuItems().get(slot));
+        }
+
+        session.clearSearch();
+        runQueuedRenders();
+        assertEquals(items.get(0), session.getMenuItems().get(0));
+    }
+
+    @Test
+    public void playersPageAndSearchIndependently() {
+        Player other = server.createPlayer("Browser");
+        menu.openMenu(other);
+        CatalogMenu.Session otherSession = menu.getSession(other);
+        assertNotSame(session, otherSession);
+
+        session.search("blue");
+        runQueuedRenders();
+        otherSession.nextPage();
+        runQueuedRenders();
+
+        assertEquals("blue", session.getQuery());
+        assertEquals(0, session.getPage());
+        assertEquals(items.get(1), session.getMenuItems().get(0));
+        assertNull(otherSession.getQuery());
+        assertEquals(1, otherSession.getPage());
+        assertEquals(items.get(9), otherSession.getMenuItems().get(0));
+    }
+
+    @Test
+    public void removingAVisibleItemShiftsThePage() {
+        assertTrue(menu.removeCatalogItem(items.get(0)));
+        runQueuedRenders();
+
+        assertEquals(items.get(1), session.getMenuItems().get(0));
+        assertEquals(items.get(9), session.getMenuItems().get(8));
+        assertFalse(menu.removeCatalogItem(items.get(0)));
+    }
+
+    @Test
+    public void itemsAddedAfterTheLastPageAreShownWhenTheyFit() {
+        session.search("red");
+        runQueuedRenders();
+        session.nextPage();
+        runQueuedRenders();
+        assertNull(session.getMenuItems().get(1));
+
+        MenuItem added = item("Red Extra");
+        menu.addCatalogItem(added);
+        runQueuedRenders();
+        assertEquals(added, session.getMenuItems().get(1));
+    }
+
+    @Test
+    public void updatedItemsMoveIntoTheResults() {
+        session.search("green");
+        runQueuedRenders();
+        assertNull(session.getMenuItems().get(0));
+
+        MenuItem updated = items.get(4);
+        updated.addDescription("Green dye");
+        menu.updateCatalogItem(updated);
+        runQueuedRenders();
+        assertEquals(updated, session.getMenuItems().get(0));
+
+        updated.setDescriptions(new ArrayList<String>());
+        menu.updateCatalogItem(updated);
+        runQueuedRenders();
+        assertNull(session.getMenuItems().get(0));
+    }
+
+    @Test
+    public void updatedItemsAreRefreshedForEveryViewer() {
+        Player other = server.createPlayer("Browser");
+        menu.openMenu(other);
+        CatalogMenu.Session otherSession = menu.getSession(other);
+        runQueuedRenders();
+
+        items.get(0).addDescription("On sale");
+        menu.updateCatalogItem(items.get(0));
+        assertEquals(Arrays.asList("On sale"), session.getInventory().getItem(0).getItemMeta().getLore());
+        assertEquals(Arrays.asList("On sale"), otherSession.getInventory().getItem(0).getItemMeta().getLore());
+    }
+
+    @Test
+    public void closingEndsTheSessionAndReleasesItsItems() {
+        session.closeMenu(player);
+
+        assertTrue(menu.getSessions().isEmpty());
+        assertNull(items.get(0).getMenu());
+        menu.openMenu(player);
+        assertNotSame(session, menu.getSession(player));
+    }
+
+    @Test
+    public void copiesShareTheCatalog() {
+        CatalogMenu copy = (CatalogMenu) MenuAPI.getMenuAPI().cloneMenu(menu);
+        assertSame(menu.getIndex(), copy.getIndex());
+
+        session.search("extra");
+        runQueuedRenders();
+        MenuItem added = item("Extra");
+        copy.addCatalogItem(added);
+        runQueuedRenders();
+        assertEquals(added, session.getMenuItems().get(0));
+    }
+
+    /*
+     * Ticks the server until every render the menu scheduler deferred has run
+     */
+    private void runQueuedRenders() {
+        while (MenuAPI.getMenuAPI().getScheduler().getQueuedTasks() > 0) {
+            server.tick();
+        }
+    }
+
+    private static MenuItem item(String text) {
+        return new MenuItem(text) {
+            @Override
+            public void onClick(Player player, InventoryClickType clickType) {
+            }
+        };
+    }
+}
@@ -0,0 +1,157 @@
+package com.sainttx.menu;
+
+import com.sainttx.menu.simulation.SimulatedServer;
+import org.bukkit.entity.Player;
+import org.bukkit.event.inventory.ClickType;
+import org.bukkit.event.inventory.InventoryAction;
+import org.bukkit.event.inventory.InventoryClickEvent;
+import org.bukkit.event.inventory.InventoryType;
+import org.bukkit.event.player.AsyncPlayerChatEvent;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class MenuAPITest {
+
+    private SimulatedServer server;
+    private MenuScheduler scheduler;
+    private long budget;
+    private long clickReserve;
+    private Player player;
+    private Menu menu;
+    private List<String> clicked;
+
+    @Before
+    public void setUp() {
+        server = SimulatedServer.install();
+        scheduler = MenuAPI.getMenuAPI().getScheduler();
+        budget = scheduler.getTimeBudget(TimeUnit.NANOSECONDS);
+        clickReserve = scheduler.getClickReserve(TimeUnit.NANOSECONDS);
+        player = server.createPlayer("Clicker");
+        menu = new Menu("Clicks", 1);
+        clicked = new ArrayList<String>();
+        menu.addMenuItem(item("first"), 0);
+        menu.openMenu(player);
+        runQueuedTasks();
+    }
+
+    @After
+    public void tearDown() {
+        scheduler.setTimeBudget(budget, TimeUnit.NANOSECONDS);
+        scheduler.setClickReserve(clickReserve, TimeUnit.NANOSECONDS);
+        runQueuedTasks();
+    }
+
+    @Test
+    public void deferredClicksSelectTheClickedItem() {
+        deferClicks();
+        click(0);
+        assertTrue(clicked.isEmpty());
+
+        runQueuedTasks();
+        assertEquals(Arrays.asList("first"), clicked);
+    }
+
+    @Test
+    public void deferredClicksAreDroppedWhenTheSlotChanges() {
+        deferClicks();
+        click(0);
+        menu.removeMenuItem(0);
+        menu.addMenuItem(item("second"), 0);
+
+        runQueuedTasks();
+        assertTrue(clicked.isEmpty());
+    }
+
+    @Test
+    public void deferredClicksAreDroppedWhenThePlayerLeaves() {
+        deferClicks();
+        click(0);
+        player.closeInventory();
+
+        runQueuedTasks();
+        assertTrue(clicked.isEmpty());
+    }
+
+    @Test
+    public void switchingOpensTheNewMenuLater() {
+        Menu other = new Menu("Other", 1);
+        menu.switchMenu(player, other);
+        assertFalse(menu.getInventory().getViewers().contains(player));
+
+        runQueuedTasks();
+        assertSame(other, player.getOpenInventory().getTopInventory().getHolder());
+    }
+
+    @Test
+    public void switchesAreDroppedWhenThePlayerOpensSomethingElse() {
+        Menu other = new Menu("Other", 1);
+        Menu opened = new Menu("Opened", 1);
+        menu.switchMenu(player, other);
+        opened.openMenu(player);
+
+        runQueuedTasks();
+        assertSame(opened, player.getOpenInventory().getTopInventory().getHolder());
+    }
+
+    @Test
+    public void searchInputIsRunInTheNextTick() {
+        CatalogMenu catalog = new CatalogMenu("Shop", 2);
+        catalog.addCatalogItem(item("Blue Wool"));
+        catalog.openMenu(player);
+        catalog.promptSearch(player);
+
+        AsyncPlayerChatEvent chat = new AsyncPlayerChatEvent(true, player, "blue", new HashSet<Player>());
+        MenuAPI.getMenuAPI().onCatalogSearchInput(chat);
+        assertTrue(chat.isCancelled());
+        assertTrue(catalog.getSessions().isEmpty());
+
+        server.tick();
+        runQueuedTasks();
+        assertEquals("blue", catalog.getSession(player).getQuery());
+        assertSame(catalog.getSession(player), player.getOpenInventory().getTopInventory().getHolder());
+    }
+
+    @Test
+    public void chatIsLeftAloneWithoutAPendingSearch() {
+        AsyncPlayerChatEvent chat = new AsyncPlayerChatEvent(true, player, "hello", new HashSet<Player>());
+        MenuAPI.getMenuAPI().onCatalogSearchInput(chat);
+        assertFalse(chat.isCancelled());
+    }
+
+    private void deferClicks() {
+        scheduler.setTimeBudget(0, TimeUnit.MILLISECONDS);
+        scheduler.setClickReserve(0, TimeUnit.MILLISECONDS);
+    }
+
+    private void click(int slot) {
+        MenuAPI.getMenuAPI().onMenuItemClicked(new InventoryClickEvent(player.getOpenInventory(),
+                InventoryType.SlotType.CONTAINER, slot, ClickType.LEFT, InventoryAction.PICKUP_ALL));
+    }
+
+    private void runQueuedTasks() {
+        while (scheduler.getQueuedTasks() > 0) {
+            server.tick();
+        }
+    }
+
+    private MenuItem item(final String name) {
+        return new MenuItem(name) {
+            @Override
+            public void onClick(Player player, InventoryClickType clickType) {
+                clicked.add(name);
+            }
+        };
+    }
+}
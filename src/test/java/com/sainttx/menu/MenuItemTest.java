@@ -0,0 +1,69 @@
+package com.sainttx.menu;
+
+import com.sainttx.menu.simulation.SimulatedServer;
+import org.bukkit.Material;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class MenuItemTest {
+
+    private Menu menu;
+
+    @Before
+    public void setUp() {
+        SimulatedServer.install();
+        menu = new Menu("Items", 1);
+    }
+
+    @Test
+    public void changingTheDescriptionRerendersTheSlot() {
+        MenuItem item = new MenuItem("Sword") {
+            @Override
+            public void onClick(Player player, InventoryClickType clickType) {
+            }
+        };
+        menu.addMenuItem(item, 3);
+
+        item.addDescription("Sharp");
+        assertEquals(Arrays.asList("Sharp"), getLore(3));
+        item.setDescriptions(Arrays.asList("Blunt"));
+        assertEquals(Arrays.asList("Blunt"), getLore(3));
+    }
+
+    @Test
+    public void changingTheDescriptionRerendersAnimatedSlots() {
+        List<ItemStack> frames = new ArrayList<ItemStack>();
+        frames.add(new ItemStack(Material.PAPER));
+        AnimatedMenuItem item = new AnimatedMenuItem("Loading", frames, 20) {
+            @Override
+            public void onClick(Player player, InventoryClickType clickType) {
+            }
+        };
+        menu.addMenuItem(item, 0);
+
+        item.addDescription("Please wait");
+        assertEquals(Arrays.asList("Please wait"), getLore(0));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void descriptionsCanOnlyBeChangedThroughTheItem() {
+        MenuItem item = new MenuItem("Sword") {
+            @Override
+            public void onClick(Player player, InventoryClickType clickType) {
+            }
+        };
+        item.getDescriptions().add("Sharp");
+    }
+
+    private List<String> getLore(int slot) {
+        return menu.getInventory().getItem(slot).getItemMeta().getLore();
+    }
+}
@@ -0,0 +1,192 @@
+package com.sainttx.menu;
+
+import com.sainttx.menu.simulation.SimulatedServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class MenuSchedulerTest {
+
+    private SimulatedServer server;
+    private MenuScheduler scheduler;
+    private List<String> ran;
+
+    @Before
+    public void setUp() {
+        server = SimulatedServer.install();
+        scheduler = new MenuScheduler();
+        ran = new ArrayList<String>();
+    }
+
+    @After
+    public void tearDown() {
+        scheduler.stop();
+    }
+
+    @Test
+    public void workWithinTheBudgetRunsImmediately() {
+        assertTrue(scheduler.execute(MenuScheduler.Priority.REFRESH, record("refresh")));
+
+        assertEquals(Arrays.asList("refresh"), ran);
+        assertEquals(0, scheduler.getQueuedTasks());
+        assertEquals(1, scheduler.getExecutedTasks(MenuScheduler.Priority.REFRESH));
+    }
+
+    @Test
+    public void stoppedSchedulersKeepTheirQueueUntilRestarted() {
+        scheduler.schedule(MenuScheduler.Priority.REFRESH, record("refresh"));
+        scheduler.stop();
+
+        server.tick();
+        assertTrue(ran.isEmpty());
+        scheduler.schedule(MenuScheduler.Priority.REFRESH, record("restarted"));
+        server.tick();
+        assertEquals(Arrays.asList("refresh", "restarted"), ran);
+    }
+
+    @Test
+    public void workOverTheBudgetRunsNextTick() {
+        scheduler.setTimeBudget(0, TimeUnit.MILLISECONDS);
+        assertFalse(scheduler.execute(MenuScheduler.Priority.REFRESH, record("refresh")));
+
+        assertTrue(ran.isEmpty());
+        assertEquals(1, scheduler.getDeferredTasks(MenuScheduler.Priority.REFRESH));
+        server.tick();
+        assertEquals(Arrays.asList("refresh"), ran);
+    }
+
+    @Test
+    public void queuedWorkRunsInPriorityOrder() {
+        scheduler.setTimeBudget(1, TimeUnit.SECONDS);
+        scheduler.schedule(MenuScheduler.Priority.BUILD, record("build"));
+        scheduler.schedule(MenuScheduler.Priority.REFRESH, record("refresh"));
+        scheduler.schedule(MenuScheduler.Priority.SWITCH, record("switch"));
+        scheduler.schedule(MenuScheduler.Priority.CLICK, record("click"));
+
+        server.tick();
+        assertEquals(Arrays.asList("click", "switch", "refresh", "build"), ran);
+    }
+
+    @Test
+    public void workOverTheBudgetIsCarriedIntoLaterTicks() {
+        scheduler.setTimeBudget(0, TimeUnit.MILLISECONDS);
+        scheduler.schedule(MenuScheduler.Priority.BUILD, record("first"));
+        scheduler.schedule(MenuScheduler.Priority.BUILD, record("second"));
+        scheduler.schedule(MenuScheduler.Priority.BUILD, record("third"));
+
+        // At least one task runs every tick however small the budget
+        server.tick();
+        assertEquals(Arrays.asList("first"), ran);
+        server.tick();
+        server.tick();
+        assertEquals(Arrays.asList("first", "second", "third"), ran);
+        assertEquals(2, scheduler.getCarriedTicks());
+        assertEquals(3, scheduler.getMaxDeferredTicks());
+    }
+
+    @Test
+    public void clicksRunWhenQueuedWorkUsedTheBudget() {
+        scheduler.setTimeBudget(10, TimeUnit.MILLISECONDS);
+        scheduler.setClickReserve(5, TimeUnit.MILLISECONDS);
+        scheduler.schedule(MenuScheduler.Priority.BUILD, sleep("slow build", 15));
+        scheduler.schedule(MenuScheduler.Priority.BUILD, record("build"));
+
+        // The slow build overruns the whole budget, leaving the other for later
+        server.tick();
+        assertEquals(Arrays.asList("slow build"), ran);
+        assertTrue(scheduler.execute(MenuScheduler.Priority.CLICK, record("click")));
+        assertFalse(scheduler.execute(MenuScheduler.Priority.REFRESH, record("refresh")));
+        assertEquals(Arrays.asList("slow build", "click"), ran);
+    }
+
+    @Test
+    public void otherWorkLeavesTheClickReserve() {
+        scheduler.setTimeBudget(10, TimeUnit.MILLISECONDS);
+        scheduler.setClickReserve(10, TimeUnit.MILLISECONDS);
+        server.tick();
+
+        assertFalse(scheduler.execute(MenuScheduler.Priority.SWITCH, record("switch")));
+        assertTrue(scheduler.execute(MenuScheduler.Priority.CLICK, record("click")));
+        assertEquals(Arrays.asList("click"), ran);
+    }
+
+    @Test
+    public void workQueuedByQueuedWorkWaitsForTheNextTick() {
+        scheduler.setTimeBudget(1, TimeUnit.SECONDS);
+        scheduler.schedule(MenuScheduler.Priority.REFRESH, new Runnable() {
+            @Override
+            public void run() {
+                ran.add("outer");
+                scheduler.schedule(MenuScheduler.Priority.CLICK, record("inner"));
+            }
+        });
+
+        server.tick();
+        assertEquals(Arrays.asList("outer"), ran);
+        server.tick();
+        assertEquals(Arrays.asList("outer", "inner"), ran);
+    }
+
+    @Test
+    public void onlyHigherPriorityWorkSkipsTheQueue() {
+        scheduler.setTimeBudget(1, TimeUnit.SECONDS);
+        server.tick();
+        scheduler.schedule(MenuScheduler.Priority.REFRESH, record("queued"));
+
+        assertTrue(scheduler.execute(MenuScheduler.Priority.CLICK, record("click")));
+        assertFalse(scheduler.execute(MenuScheduler.Priority.REFRESH, record("refresh")));
+        assertFalse(scheduler.execute(MenuScheduler.Priority.BUILD, record("build")));
+        assertEquals(Arrays.asList("click"), ran);
+
+        server.tick();
+        assertEquals(Arrays.asList("click", "queued", "refresh", "build"), ran);
+    }
+
+    @Test
+    public void failingWorkDoesNotStopTheQueue() {
+        scheduler.setTimeBudget(1, TimeUnit.SECONDS);
+        scheduler.schedule(MenuScheduler.Priority.CLICK, new Runnable() {
+            @Override
+            public void run() {
+                throw new IllegalStateException("expected by the test");
+            }
+        });
+        scheduler.schedule(MenuScheduler.Priority.CLICK, record("after"));
+
+        server.tick();
+        assertEquals(Arrays.asList("after"), ran);
+        assertEquals(0, scheduler.getQueuedTasks());
+    }
+
+    private Runnable sleep(final String name, final long millis) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(millis);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                ran.add(name);
+            }
+        };
+    }
+
+    private Runnable record(final String name) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                ran.add(name);
+            }
+        };
+    }
+}
@@ -0,0 +1,95 @@
+package com.sainttx.menu.simulation;
+
+/**
+ * The scripted behaviour of simulated players. Each chance is rolled once
+ * per player per tick.
+ */
+public enum LoadPattern {
+
+    /**
+     * Players browse menus at a steady rate with occasional quits
+     */
+    STEADY(0.02, 0.05, 0.01, 0.001, 0.01, false),
+
+    /**
+     * Every player opens the lobby on the first tick, like the start of an
+     * event, then clicks heavily
+     */
+    RUSH(0.01, 0.10, 0.005, 0.0005, 0.01, true),
+
+    /**
+     * Players constantly quit and rejoin while menus are open
+     */
+    CHURN(0.05, 0.05, 0.02, 0.02, 0.05, false);
+
+    private final double openChance;
+    private final double clickChance;
+    private final double closeChance;
+    private final double quitChance;
+    private final double joinChance;
+    private final boolean openOnStart;
+
+    LoadPattern(double openChance, double clickChance, double closeChance, double quitChance, double joinChance,
+                boolean openOnStart) {
+        this.openChance = openChance;
+        this.clickChance = clickChance;
+        this.closeChance = closeChance;
+        this.quitChance = quitChance;
+        this.joinChance = joinChance;
+        this.openOnStart = openOnStart;
+    }
+
+    /**
+     * Get the chance a player without a menu open opens the lobby
+     *
+     * @return The chance, between 0 and 1
+     */
+    public double getOpenChance() {
+        return openChance;
+    }
+
+    /**
+     * Get the chance a player with a menu open clicks a slot
+     *
+     * @return The chance, between 0 and 1
+     */
+    public double getClickChance() {
+        return clickChance;
+    }
+
+    /**
+     * Get the chance a player with a menu open closes it
+     *
+     * @return The chance, between 0 and 1
+     */
+    public double getCloseChance() {
+        return closeChance;
+    }
+
+    /**
+     * Get the chance an online player quits
+     *
+     * @return The chance, between 0 and 1
+     */
+    public double getQuitChance() {
+        return quitChance;
+    }
+
+    /**
+     * Get the chance an offline player rejoins
+     *
+     * @return The chance, between 0 and 1
+     */
+    public double getJoinChance() {
+        return joinChance;
+    }
+
+    /**
+     * Returns if every player opens the lobby on the first tick
+     *
+     * @return True if players rush the lobby, false otherwise
+     */
+    public boolean isOpenOnStart() {
+        return openOnStart;
+    }
+}
@@ -0,0 +1,298 @@
+package com.sainttx.menu.simulation;
+
+import com.sainttx.menu.AnimatedMenuItem;
+import com.sainttx.menu.CatalogMenu;
+import com.sainttx.menu.InventoryClickType;
+import com.sainttx.menu.Menu;
+import com.sainttx.menu.MenuAPI;
+import com.sainttx.menu.MenuItem;
+import com.sainttx.menu.MenuScheduler;
+import org.bukkit.ChatColor;
+import org.bukkit.Material;
+import org.bukkit.entity.HumanEntity;
+import org.bukkit.entity.Player;
+import org.bukkit.event.inventory.ClickType;
+import org.bukkit.event.inventory.InventoryAction;
+import org.bukkit.event.inventory.InventoryClickEvent;
+import org.bukkit.event.inventory.InventoryType;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.inventory.InventoryHolder;
+import org.bukkit.inventory.InventoryView;
+import org.bukkit.inventory.ItemStack;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Drives the MenuAPI listeners with thousands of simulated players against
+ * a stand-in server, without any real clients. Players open a lobby menu,
+ * click its items, switch to their session of a shared shop catalog and
+ * per-player profile clones, close menus and quit following a {@link LoadPattern}.
+ * <p/>
+ * Usage: MenuLoadSimulator [players] [ticks] [pattern] [seed]
+ */
+public class MenuLoadSimulator {
+
+    private final SimulationMetrics metrics = new SimulationMetrics();
+    private final SimulatedServer server = SimulatedServer.install();
+    private final MenuAPI menuAPI = MenuAPI.getMenuAPI();
+    private final List<SimulatedPlayer> players = new ArrayList<SimulatedPlayer>();
+    private final LoadPattern pattern;
+    private final Random random;
+
+    /*
+     * Every profile clone handed out, held weakly to find the ones that leak
+     */
+    private final List<WeakReference<Menu>> profileClones = new ArrayList<WeakReference<Menu>>();
+
+    private Menu lobbyMenu;
+    private CatalogMenu shopMenu;
+    private Menu profileTemplate;
+
+    /**
+     * Creates a new simulation on the shared stand-in server, installing it
+     * if this is the first use
+     *
+     * @param playerCount The number of simulated players
+     * @param pattern     How the players behave
+     * @param seed        The seed for the players' choices
+     */
+    public MenuLoadSimulator(int playerCount, LoadPattern pattern, long seed) {
+        this.pattern = pattern;
+        this.random = new Random(seed);
+
+        createMenus();
+        for (int i = 0; i < playerCount; i++) {
+            SimulatedPlayer player = new SimulatedPlayer(metrics, menuAPI, "Player" + i);
+            players.add(player);
+            server.getOnlinePlayers().add(player.getPlayer());
+        }
+    }
+
+    private void createMenus() {
+        lobbyMenu = menuAPI.createMenu("Lobby", 6);
+        shopMenu = new CatalogMenu("Shop", 6, lobbyMenu);
+        profileTemplate = menuAPI.createMenu("Profile", 3);
+
+        lobbyMenu.addMenuItem(new MenuItem("Shop", new ItemStack(Material.CHEST)) {
+            @Override
+            public void onClick(Player player, InventoryClickType clickType) {
+                getOpenMenu(player).switchMenu(player, shopMenu);
+            }
+        }, 10);
+        lobbyMenu.addMenuItem(new MenuItem("Profile", new ItemStack(Material.SKULL_ITEM)) {
+            @Override
+            public void onClick(Player player, InventoryClickType clickType) {
+                Menu profile = menuAPI.cloneMenu(profileTemplate);
+                profileClones.add(new WeakReference<Menu>(profile));
+                getOpenMenu(player).switchMenu(player, profile);
+            }
+        }, 12);
+        lobbyMenu.addMenuItem(new MenuItem("Refresh", new ItemStack(Material.WATCH)) {
+            @Override
+            public void onClick(Player player, InventoryClickType clickType) {
+                Menu menu = getOpenMenu(player);
+                metrics.refreshedViewers += menu.getInventory().getViewers().size();
+                menu.updateMenu();
+            }
+        }, 14);
+        lobbyMenu.addMenuItem(new MenuItem("Close", new ItemStack(Material.BARRIER)) {
+            @Override
+            public void onClick(Player player, InventoryClickType clickType) {
+                getOpenMenu(player).closeMenu(player);
+            }
+        }, 16);
+        for (int slot = 28; slot <= 34; slot++) {
+            List<ItemStack> frames = new ArrayList<ItemStack>();
+            for (short color = 0; color < 4; color++) {
+                frames.add(new ItemStack(Material.STAINED_GLASS_PANE, 1, color));
+            }
+            lobbyMenu.addMenuItem(new AnimatedMenuItem("Loading", frames, 5) {
+                @Override
+                public void onClick(Player player, InventoryClickType clickType) {
+                }
+            }, slot);
+        }
+
+        List<MenuItem> shopItems = new ArrayList<MenuItem>();
+        for (int i = 0; i < 2000; i++) {
+            MenuItem item = new MenuItem(ChatColor.GREEN + "Item " + i, new ItemStack(Material.PAPER)) {
+                @Override
+                public void onClick(Player player, InventoryClickType clickType) {
+                    player.sendMessage("You bought " + getText());
+                }
+            };
+            item.addDescription(ChatColor.GRAY + "Costs " + (i % 100 + 1) + " coins");
+            shopItems.add(item);
+        }
+        shopMenu.addCatalogItems(shopItems);
+
+        profileTemplate.addMenuItem(new MenuItem("Back", new ItemStack(Material.ARROW)) {
+            @Override
+            public void onClick(Player player, InventoryClickType clickType) {
+                getOpenMenu(player).switchMenu(player, lobbyMenu);
+            }
+        }, 13);
+    }
+
+    /*
+     * Menu items are shared between clones, so the menu they report isn't
+     * always the one the player clicked in
+     */
+    private static Menu getOpenMenu(Player player) {
+        return (Menu) player.getOpenInventory().getTopInventory().getHolder();
+    }
+
+    /**
+     * Runs the simulation for a number of ticks, then has every player quit
+     * and checks what was left behind
+     *
+     * @param ticks The number of ticks to simulate
+     * @return The metrics collected
+     */
+    public SimulationMetrics run(int ticks) {
+        // The server and scheduler may have been used before, so only what
+        // this run adds is reported
+        SimulationMetrics serverMetrics = server.getMetrics();
+        long slotWritesBefore = serverMetrics.slotWrites;
+        long taskErrorsBefore = serverMetrics.taskErrors;
+        MenuScheduler scheduler = menuAPI.getScheduler();
+        long deferredBefore = countDeferredTasks(scheduler);
+        long carriedBefore = scheduler.getCarriedTicks();
+
+        metrics.heapBeforeRun = usedHeap();
+        for (int tick = 1; tick <= ticks; tick++) {
+            long start = System.nanoTime();
+            server.getScheduler().tick();
+            simulatePlayers(tick);
+            metrics.recordTick(System.nanoTime() - start);
+        }
+
+        for (SimulatedPlayer player : players) {
+            if (player.isOnline()) {
+                quit(player);
+            }
+        }
+        // Let anything scheduled before the players quit run
+        for (int tick = 0; tick < 20; tick++) {
+            server.getScheduler().tick();
+        }
+        metrics.leakedViewers = countViewers(lobbyMenu);
+        for (Menu session : shopMenu.getSessions()) {
+            metrics.leakedViewers += countViewers(session);
+        }
+        metrics.leakedSessions = shopMenu.getSessions().size();
+        metrics.slotWrites = serverMetrics.slotWrites - slotWritesBefore;
+        metrics.taskErrors = serverMetrics.taskErrors - taskErrorsBefore;
+        metrics.deferredMenuTasks = countDeferredTasks(scheduler) - deferredBefore;
+        metrics.carriedTicks = scheduler.getCarriedTicks() - carriedBefore;
+        metrics.maxDeferredTicks = scheduler.getMaxDeferredTicks();
+        metrics.heapAfterRun = usedHeap();
+
+        // Every player has quit, so any clone that survived collection leaked.
+        // The template's items are shared with every clone and still point
+        // at the last clone they were added to, so those aren't counted.
+        Set<Menu> templateHolders = Collections.newSetFromMap(new IdentityHashMap<Menu, Boolean>());
+        for (MenuItem item : profileTemplate.getMenuItems().values()) {
+            templateHolders.add(item.getMenu());
+        }
+        metrics.clonesCreated = profileClones.size();
+        for (WeakReference<Menu> reference : profileClones) {
+            Menu clone = reference.get();
+            if (clone != null) {
+                if (!templateHolders.contains(clone)) {
+                    metrics.clonesReachable++;
+                }
+                metrics.cloneViewers += clone.getInventory().getViewers().size();
+            }
+        }
+        return metrics;
+    }
+
+    private static long countDeferredTasks(MenuScheduler scheduler) {
+        long deferred = 0;
+        for (MenuScheduler.Priority priority : MenuScheduler.Priority.values()) {
+            deferred += scheduler.getDeferredTasks(priority);
+        }
+        return deferred;
+    }
+
+    private void simulatePlayers(int tick) {
+        for (SimulatedPlayer player : players) {
+            if (!player.isOnline()) {
+                if (random.nextDouble() < pattern.getJoinChance()) {
+                    player.setOnline(true);
+                    server.getOnlinePlayers().add(player.getPlayer());
+                    metrics.joins++;
+                }
+                continue;
+            }
+            if (random.nextDouble() < pattern.getQuitChance()) {
+                quit(player);
+                continue;
+            }
+
+            double roll = random.nextDouble();
+            if (player.hasInventoryOpen()) {
+                if (roll < pattern.getClickChance()) {
+                    click(player);
+                } else if (roll < pattern.getClickChance() + pattern.getCloseChance()) {
+                    player.getPlayer().closeInventory();
+                }
+            } else if ((tick == 1 && pattern.isOpenOnStart()) || roll < pattern.getOpenChance()) {
+                lobbyMenu.openMenu(player.getPlayer());
+            }
+        }
+    }
+
+    private void click(SimulatedPlayer player) {
+        InventoryView view = player.getPlayer().getOpenInventory();
+        int slot = random.nextInt(view.getTopInventory().getSize());
+        metrics.clicks++;
+        menuAPI.onMenuItemClicked(new InventoryClickEvent(view, InventoryType.SlotType.CONTAINER, slot,
+                ClickType.LEFT, InventoryAction.PICKUP_ALL));
+    }
+
+    private void quit(SimulatedPlayer player) {
+        menuAPI.onPlayerLogoutCloseMenu(new PlayerQuitEvent(player.getPlayer(), "quit"));
+        // The server closes whatever is left open when the connection drops
+        player.getPlayer().closeInventory();
+        player.setOnline(false);
+        server.getOnlinePlayers().remove(player.getPlayer());
+        metrics.quits++;
+    }
+
+    private int countViewers(InventoryHolder menu) {
+        int viewers = 0;
+        for (HumanEntity viewer : menu.getInventory().getViewers()) {
+            if (!((Player) viewer).isOnline()) {
+                viewers++;
+            }
+        }
+        return viewers;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    public static void main(String[] args) {
+        int playerCount = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int ticks = args.length > 1 ? Integer.parseInt(args[1]) : 1200;
+        LoadPattern pattern = args.length > 2 ? LoadPattern.valueOf(args[2].toUpperCase()) : LoadPattern.STEADY;
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : 1;
+
+        System.out.println("Simulating " + playerCount + " players for " + ticks + " ticks (" + pattern + ", seed "
+                + seed + ")");
+        new MenuLoadSimulator(playerCount, pattern, seed).run(ticks).print(System.out);
+    }
+}
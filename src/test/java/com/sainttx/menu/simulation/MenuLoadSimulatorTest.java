@@ -0,0 +1,25 @@
+package com.sainttx.menu.simulation;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class MenuLoadSimulatorTest {
+
+    @Test
+    public void everyoneOpeningAtOnceLeavesNothingBehind() {
+        SimulationMetrics metrics = new MenuLoadSimulator(200, LoadPattern.RUSH, 1).run(200);
+
+        assertEquals(0, metrics.getLeakedViewers());
+        assertEquals(0, metrics.getLeakedSessions());
+        assertEquals(0, metrics.getClonesReachable());
+        assertEquals(0, metrics.getCloneViewers());
+
+        // A click resends the clicker's inventory and may render one page, and
+        // a refresh resends every viewer, so anything more is a resend storm
+        long allowed = 2 * metrics.getClicks() + metrics.getRefreshedViewers();
+        assertTrue("expected at most " + allowed + " resends but was " + metrics.getResends(),
+                metrics.getResends() <= allowed);
+    }
+}
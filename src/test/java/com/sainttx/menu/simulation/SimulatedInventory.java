@@ -0,0 +1,84 @@
+package com.sainttx.menu.simulation;
+
+import org.bukkit.entity.HumanEntity;
+import org.bukkit.event.inventory.InventoryType;
+import org.bukkit.inventory.InventoryHolder;
+import org.bukkit.inventory.ItemStack;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A stand-in for an inventory that counts the slots written while it is
+ * being viewed
+ */
+class SimulatedInventory extends StandIn {
+
+    private final SimulationMetrics metrics;
+    private final InventoryHolder holder;
+    private final InventoryType type;
+    private final String title;
+    private final ItemStack[] contents;
+    private final List<HumanEntity> viewers = new ArrayList<HumanEntity>();
+
+    SimulatedInventory(SimulationMetrics metrics, InventoryHolder holder, InventoryType type, int size, String title) {
+        this.metrics = metrics;
+        this.holder = holder;
+        this.type = type;
+        this.title = title;
+        this.contents = new ItemStack[size];
+    }
+
+    /**
+     * Get the players viewing this inventory. Like the server implementation
+     * this is the live list.
+     *
+     * @return The viewers
+     */
+    List<HumanEntity> getViewers() {
+        return viewers;
+    }
+
+    @Override
+    protected Object handle(Object proxy, String method, Object[] args) {
+        if (method.equals("getSize")) {
+            return contents.length;
+        } else if (method.equals("getName") || method.equals("getTitle")) {
+            return title;
+        } else if (method.equals("getType")) {
+            return type;
+        } else if (method.equals("getHolder")) {
+            return holder;
+        } else if (method.equals("getViewers")) {
+            return viewers;
+        } else if (method.equals("getMaxStackSize")) {
+            return 64;
+        } else if (method.equals("getItem")) {
+            return contents[(Integer) args[0]];
+        } else if (method.equals("setItem")) {
+            setItem((Integer) args[0], (ItemStack) args[1]);
+            return null;
+        } else if (method.equals("clear")) {
+            if (args.length == 1) {
+                setItem((Integer) args[0], null);
+            } else {
+                for (int slot = 0; slot < contents.length; slot++) {
+                    setItem(slot, null);
+                }
+            }
+            return null;
+        } else if (method.equals("getContents")) {
+            return Arrays.copyOf(contents, contents.length);
+        }
+        return UNHANDLED;
+    }
+
+    private void setItem(int slot, ItemStack item) {
+        // The server copies every stack it is given
+        contents[slot] = item == null ? null : item.clone();
+        if (!viewers.isEmpty()) {
+            metrics.slotWrites++;
+        }
+    }
+}
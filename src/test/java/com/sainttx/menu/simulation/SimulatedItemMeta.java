@@ -0,0 +1,72 @@
+package com.sainttx.menu.simulation;
+
+import org.bukkit.inventory.meta.ItemMeta;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A stand-in for item meta holding a display name and lore
+ */
+class SimulatedItemMeta extends StandIn {
+
+    private String displayName;
+    private List<String> lore;
+
+    @Override
+    protected Object handle(Object proxy, String method, Object[] args) {
+        if (method.equals("hasDisplayName")) {
+            return displayName != null;
+        } else if (method.equals("getDisplayName")) {
+            return displayName;
+        } else if (method.equals("setDisplayName")) {
+            displayName = (String) args[0];
+            return null;
+        } else if (method.equals("hasLore")) {
+            return lore != null;
+        } else if (method.equals("getLore")) {
+            // Like the server implementation, callers only get a copy
+            return lore == null ? null : new ArrayList<String>(lore);
+        } else if (method.equals("setLore")) {
+            @SuppressWarnings("unchecked")
+            List<String> lines = (List<String>) args[0];
+            lore = lines == null || lines.isEmpty() ? null : new ArrayList<String>(lines);
+            return null;
+        } else if (method.equals("hasEnchants")) {
+            return false;
+        } else if (method.equals("getEnchants")) {
+            return Collections.emptyMap();
+        } else if (method.equals("serialize")) {
+            Map<String, Object> serialized = new LinkedHashMap<String, Object>();
+            if (displayName != null) {
+                serialized.put("display-name", displayName);
+            }
+            if (lore != null) {
+                serialized.put("lore", lore);
+            }
+            return serialized;
+        } else if (method.equals("clone")) {
+            return copy().createProxy(ItemMeta.class);
+        }
+        return UNHANDLED;
+    }
+
+    private SimulatedItemMeta copy() {
+        SimulatedItemMeta copy = new SimulatedItemMeta();
+        copy.displayName = displayName;
+        copy.lore = lore == null ? null : new ArrayList<String>(lore);
+        return copy;
+    }
+
+    /**
+     * Creates the stand-in used by the item factory for new item meta
+     *
+     * @return The item meta
+     */
+    static ItemMeta create() {
+        return new SimulatedItemMeta().createProxy(ItemMeta.class);
+    }
+}
@@ -0,0 +1,121 @@
+package com.sainttx.menu.simulation;
+
+import com.sainttx.menu.MenuAPI;
+import org.bukkit.entity.Player;
+import org.bukkit.event.inventory.InventoryCloseEvent;
+import org.bukkit.event.inventory.InventoryOpenEvent;
+import org.bukkit.event.inventory.InventoryType;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.InventoryView;
+import org.bukkit.inventory.PlayerInventory;
+
+import java.util.UUID;
+
+/**
+ * A stand-in for a connected player. Opening and closing inventories
+ * behaves like the server, firing the close event through the MenuAPI
+ * listener before the player stops viewing.
+ */
+class SimulatedPlayer extends StandIn {
+
+    private final SimulationMetrics metrics;
+    private final MenuAPI menuAPI;
+    private final String name;
+    private final UUID uniqueId = UUID.randomUUID();
+    private final Player player;
+    private final Inventory playerInventory;
+    private final InventoryView defaultView;
+    private InventoryView openView;
+    private boolean online = true;
+
+    SimulatedPlayer(SimulationMetrics metrics, MenuAPI menuAPI, String name) {
+        this.metrics = metrics;
+        this.menuAPI = menuAPI;
+        this.name = name;
+        this.player = createProxy(Player.class);
+        this.playerInventory = new SimulatedInventory(metrics, player, InventoryType.PLAYER, 36, "container.inventory")
+                .createProxy(PlayerInventory.class);
+        Inventory crafting = new SimulatedInventory(metrics, player, InventoryType.CRAFTING, 5, "container.crafting")
+                .createProxy(Inventory.class);
+        this.defaultView = new SimulatedView(crafting, playerInventory, player);
+        this.openView = defaultView;
+    }
+
+    /**
+     * Get the proxy the menu system sees for this player
+     *
+     * @return The player
+     */
+    Player getPlayer() {
+        return player;
+    }
+
+    /**
+     * Returns if this player has an inventory other than their own open
+     *
+     * @return True if an inventory is open, false otherwise
+     */
+    boolean hasInventoryOpen() {
+        return openView != defaultView;
+    }
+
+    boolean isOnline() {
+        return online;
+    }
+
+    void setOnline(boolean online) {
+        this.online = online;
+    }
+
+    @Override
+    protected Object handle(Object proxy, String method, Object[] args) {
+        if (method.equals("getName") || method.equals("getDisplayName")) {
+            return name;
+        } else if (method.equals("getUniqueId")) {
+            return uniqueId;
+        } else if (method.equals("isOnline")) {
+            return online;
+        } else if (method.equals("getInventory")) {
+            return playerInventory;
+        } else if (method.equals("getOpenInventory")) {
+            return openView;
+        } else if (method.equals("openInventory") && args.length == 1 && args[0] instanceof Inventory) {
+            return openInventory((Inventory) args[0]);
+        } else if (method.equals("closeInventory")) {
+            closeInventory();
+            return null;
+        } else if (method.equals("updateInventory")) {
+            metrics.resends++;
+            metrics.resentSlots += openView.getTopInventory().getSize() + playerInventory.getSize();
+            return null;
+        } else if (method.equals("sendMessage")) {
+            metrics.messages++;
+            return null;
+        } else if (method.equals("hasPermission") || method.equals("isPermissionSet")) {
+            return true;
+        }
+        return UNHANDLED;
+    }
+
+    private InventoryView openInventory(Inventory inventory) {
+        if (hasInventoryOpen()) {
+            closeInventory();
+        }
+        openView = new SimulatedView(inventory, playerInventory, player);
+        menuAPI.onInventoryOpenCancelSearch(new InventoryOpenEvent(openView));
+        inventory.getViewers().add(player);
+        metrics.opens++;
+        return openView;
+    }
+
+    private void closeInventory() {
+        if (!hasInventoryOpen()) {
+            return;
+        }
+        InventoryView view = openView;
+        menuAPI.onMenuClosed(new InventoryCloseEvent(view));
+        view.getTopInventory().getViewers().remove(player);
+        openView = defaultView;
+        metrics.closes++;
+    }
+}
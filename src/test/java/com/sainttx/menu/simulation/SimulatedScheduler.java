@@ -0,0 +1,134 @@
+package com.sainttx.menu.simulation;
+
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A stand-in for the scheduler that runs every task on the simulation
+ * thread when the simulated tick they are due on is run
+ */
+class SimulatedScheduler extends StandIn {
+
+    private final SimulationMetrics metrics;
+    private final Map<Integer, ScheduledTask> tasks = new LinkedHashMap<Integer, ScheduledTask>();
+    private int nextTaskId = 1;
+    private long currentTick = 0;
+
+    SimulatedScheduler(SimulationMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Runs every task due on the next tick
+     */
+    void tick() {
+        currentTick++;
+        List<ScheduledTask> due = new ArrayList<ScheduledTask>();
+        for (ScheduledTask task : tasks.values()) {
+            if (task.nextRun <= currentTick) {
+                due.add(task);
+            }
+        }
+
+        for (ScheduledTask task : due) {
+            if (!tasks.containsKey(task.id)) {
+                // Cancelled by a task that ran before it
+                continue;
+            }
+            if (task.period > 0) {
+                task.nextRun = currentTick + task.period;
+            } else {
+                tasks.remove(task.id);
+            }
+            try {
+                task.runnable.run();
+            } catch (Throwable throwable) {
+                if (metrics.taskErrors++ == 0) {
+                    throwable.printStackTrace();
+                }
+            }
+        }
+    }
+
+    @Override
+    protected Object handle(Object proxy, String method, Object[] args) {
+        if (method.equals("runTask") || method.equals("runTaskAsynchronously")) {
+            return schedule((Plugin) args[0], (Runnable) args[1], 0, -1).task;
+        } else if (method.equals("runTaskLater") || method.equals("runTaskLaterAsynchronously")) {
+            return schedule((Plugin) args[0], (Runnable) args[1], (Long) args[2], -1).task;
+        } else if (method.equals("runTaskTimer") || method.equals("runTaskTimerAsynchronously")) {
+            return schedule((Plugin) args[0], (Runnable) args[1], (Long) args[2], Math.max(1, (Long) args[3])).task;
+        } else if (method.equals("scheduleSyncDelayedTask")) {
+            long delay = args.length > 2 ? (Long) args[2] : 0;
+            return schedule((Plugin) args[0], (Runnable) args[1], delay, -1).id;
+        } else if (method.equals("scheduleSyncRepeatingTask")) {
+            return schedule((Plugin) args[0], (Runnable) args[1], (Long) args[2], Math.max(1, (Long) args[3])).id;
+        } else if (method.equals("cancelTask")) {
+            tasks.remove((Integer) args[0]);
+            return null;
+        } else if (method.equals("cancelTasks") || method.equals("cancelAllTasks")) {
+            tasks.clear();
+            return null;
+        } else if (method.equals("isQueued")) {
+            return tasks.containsKey((Integer) args[0]);
+        }
+        return UNHANDLED;
+    }
+
+    private ScheduledTask schedule(Plugin plugin, Runnable runnable, long delay, long period) {
+        ScheduledTask task = new ScheduledTask(nextTaskId++, plugin, runnable, currentTick + Math.max(1, delay), period);
+        tasks.put(task.id, task);
+        return task;
+    }
+
+    /**
+     * Get the number of tasks waiting to run
+     *
+     * @return The pending task count
+     */
+    int getPendingTasks() {
+        return tasks.size();
+    }
+
+    /*
+     * A task waiting to run and the handle given back to its owner
+     */
+    private class ScheduledTask extends StandIn {
+
+        private final int id;
+        private final Plugin owner;
+        private final Runnable runnable;
+        private final long period;
+        private final BukkitTask task;
+        private long nextRun;
+
+        ScheduledTask(int id, Plugin owner, Runnable runnable, long nextRun, long period) {
+            this.id = id;
+            this.owner = owner;
+            this.runnable = runnable;
+            this.nextRun = nextRun;
+            this.period = period;
+            this.task = createProxy(BukkitTask.class);
+        }
+
+        @Override
+        protected Object handle(Object proxy, String method, Object[] args) {
+            if (method.equals("getTaskId")) {
+                return id;
+            } else if (method.equals("getOwner")) {
+                return owner;
+            } else if (method.equals("isSync")) {
+                return true;
+            } else if (method.equals("cancel")) {
+                tasks.remove(id);
+                return null;
+            }
+            return UNHANDLED;
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.sainttx.menu.simulation;
+
+import com.sainttx.menu.MenuAPI;
+import org.bukkit.Bukkit;
+import org.bukkit.Server;
+import org.bukkit.entity.Player;
+import org.bukkit.event.inventory.InventoryType;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.InventoryHolder;
+import org.bukkit.inventory.ItemFactory;
+import org.bukkit.inventory.meta.ItemMeta;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.PluginManager;
+import org.bukkit.scheduler.BukkitScheduler;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * A stand-in for the Bukkit server providing inventories, item meta, a
+ * scheduler and a plugin to own scheduled tasks
+ */
+public class SimulatedServer extends StandIn {
+
+    /*
+     * The server shared by tests, since Bukkit only accepts one per JVM
+     */
+    private static SimulatedServer installed;
+
+    private final SimulationMetrics metrics;
+    private final Logger logger = Logger.getLogger("MenuLoadSimulator");
+    private final SimulatedScheduler scheduler;
+    private final BukkitScheduler schedulerProxy;
+    private final Plugin plugin;
+    private final PluginManager pluginManager;
+    private final ItemFactory itemFactory;
+    private final List<Player> onlinePlayers = new ArrayList<Player>();
+
+    SimulatedServer(SimulationMetrics metrics) {
+        this.metrics = metrics;
+        this.scheduler = new SimulatedScheduler(metrics);
+        this.schedulerProxy = scheduler.createProxy(BukkitScheduler.class);
+        this.plugin = new StandIn() {
+            @Override
+            protected Object handle(Object proxy, String method, Object[] args) {
+                if (method.equals("getName")) {
+                    return "Core";
+                } else if (method.equals("isEnabled")) {
+                    return true;
+                } else if (method.equals("getLogger")) {
+                    return logger;
+                }
+                return UNHANDLED;
+            }
+        }.createProxy(Plugin.class);
+        this.pluginManager = new StandIn() {
+            @Override
+            protected Object handle(Object proxy, String method, Object[] args) {
+                if (method.equals("getPlugin")) {
+                    return plugin;
+                } else if (method.equals("getPlugins")) {
+                    return new Plugin[]{plugin};
+                } else if (method.equals("isPluginEnabled")) {
+                    return true;
+                }
+                return UNHANDLED;
+            }
+        }.createProxy(PluginManager.class);
+        this.itemFactory = new StandIn() {
+            @Override
+            protected Object handle(Object proxy, String method, Object[] args) {
+                if (method.equals("getItemMeta")) {
+                    return SimulatedItemMeta.create();
+                } else if (method.equals("isApplicable")) {
+                    return true;
+                } else if (method.equals("asMetaFor")) {
+                    return ((ItemMeta) args[0]).clone();
+                } else if (method.equals("equals")) {
+                    return args[0] == null ? args[1] == null : args[1] != null
+                            && ((ItemMeta) args[0]).serialize().equals(((ItemMeta) args[1]).serialize());
+                }
+                return UNHANDLED;
+            }
+        }.createProxy(ItemFactory.class);
+    }
+
+    /**
+     * Installs a stand-in server for tests, or returns the one already
+     * installed
+     *
+     * @return The installed server
+     */
+    public static synchronized SimulatedServer install() {
+        if (installed == null) {
+            if (Bukkit.getServer() != null) {
+                throw new IllegalStateException("another server is already installed in this JVM");
+            }
+            installed = new SimulatedServer(new SimulationMetrics());
+            Bukkit.setServer(installed.createServer());
+        }
+        return installed;
+    }
+
+    SimulatedScheduler getScheduler() {
+        return scheduler;
+    }
+
+    /*
+     * The metrics shared by every inventory and task on this server
+     */
+    SimulationMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Runs every scheduled task due on the next tick
+     */
+    public void tick() {
+        scheduler.tick();
+    }
+
+    /**
+     * Connects a new simulated player
+     *
+     * @param name The player's name
+     * @return The player
+     */
+    public Player createPlayer(String name) {
+        SimulatedPlayer player = new SimulatedPlayer(metrics, MenuAPI.getMenuAPI(), name);
+        onlinePlayers.add(player.getPlayer());
+        return player.getPlayer();
+    }
+
+    /**
+     * Get the players the server reports as online. The simulation keeps this
+     * up to date as players join and quit.
+     *
+     * @return The online players
+     */
+    List<Player> getOnlinePlayers() {
+        return onlinePlayers;
+    }
+
+    @Override
+    protected Object handle(Object proxy, String method, Object[] args) {
+        if (method.equals("getName")) {
+            return "MenuLoadSimulator";
+        } else if (method.equals("getVersion") || method.equals("getBukkitVersion")) {
+            return "simulated";
+        } else if (method.equals("getLogger")) {
+            return logger;
+        } else if (method.equals("getScheduler")) {
+            return schedulerProxy;
+        } else if (method.equals("getPluginManager")) {
+            return pluginManager;
+        } else if (method.equals("getItemFactory")) {
+            return itemFactory;
+        } else if (method.equals("isPrimaryThread")) {
+            return true;
+        } else if (method.equals("getOnlinePlayers")) {
+            return Collections.unmodifiableList(onlinePlayers);
+        } else if (method.equals("createInventory")) {
+            return createInventory(args);
+        }
+        return UNHANDLED;
+    }
+
+    private Inventory createInventory(Object[] args) {
+        InventoryHolder holder = (InventoryHolder) args[0];
+        if (args[1] instanceof InventoryType) {
+            InventoryType type = (InventoryType) args[1];
+            String title = args.length > 2 ? (String) args[2] : type.getDefaultTitle();
+            return new SimulatedInventory(metrics, holder, type, type.getDefaultSize(), title).createProxy(Inventory.class);
+        }
+        String title = args.length > 2 ? (String) args[2] : InventoryType.CHEST.getDefaultTitle();
+        return new SimulatedInventory(metrics, holder, InventoryType.CHEST, (Integer) args[1], title)
+                .createProxy(Inventory.class);
+    }
+
+    /**
+     * Creates the proxy to install with Bukkit.setServer
+     *
+     * @return The server
+     */
+    Server createServer() {
+        return createProxy(Server.class);
+    }
+}
@@ -0,0 +1,42 @@
+package com.sainttx.menu.simulation;
+
+import org.bukkit.entity.HumanEntity;
+import org.bukkit.event.inventory.InventoryType;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.InventoryView;
+
+/**
+ * The view of an inventory opened by a simulated player
+ */
+class SimulatedView extends InventoryView {
+
+    private final Inventory top;
+    private final Inventory bottom;
+    private final HumanEntity player;
+
+    SimulatedView(Inventory top, Inventory bottom, HumanEntity player) {
+        this.top = top;
+        this.bottom = bottom;
+        this.player = player;
+    }
+
+    @Override
+    public Inventory getTopInventory() {
+        return top;
+    }
+
+    @Override
+    public Inventory getBottomInventory() {
+        return bottom;
+    }
+
+    @Override
+    public HumanEntity getPlayer() {
+        return player;
+    }
+
+    @Override
+    public InventoryType getType() {
+        return top.getType();
+    }
+}
@@ -0,0 +1,184 @@
+package com.sainttx.menu.simulation;
+
+import java.io.PrintStream;
+import java.util.Arrays;
+
+/**
+ * Counters and timings collected while a simulation runs
+ */
+public class SimulationMetrics {
+
+    /*
+     * The time each simulated tick took, in nanoseconds
+     */
+    private long[] tickNanos = new long[64];
+    private int ticks = 0;
+
+    long resends = 0;
+    long resentSlots = 0;
+    long refreshedViewers = 0;
+    long slotWrites = 0;
+    long opens = 0;
+    long closes = 0;
+    long clicks = 0;
+    long quits = 0;
+    long joins = 0;
+    long messages = 0;
+    long taskErrors = 0;
+    long deferredMenuTasks = 0;
+    long carriedTicks = 0;
+    long maxDeferredTicks = 0;
+
+    long heapBeforeRun = 0;
+    long heapAfterRun = 0;
+    int leakedViewers = 0;
+    int leakedSessions = 0;
+    int clonesCreated = 0;
+    int clonesReachable = 0;
+    int cloneViewers = 0;
+
+    void recordTick(long nanos) {
+        if (ticks == tickNanos.length) {
+            tickNanos = Arrays.copyOf(tickNanos, ticks * 2);
+        }
+        tickNanos[ticks++] = nanos;
+    }
+
+    /**
+     * Get the number of ticks simulated
+     *
+     * @return The tick count
+     */
+    public int getTicks() {
+        return ticks;
+    }
+
+    /**
+     * Get a percentile of the tick times
+     *
+     * @param percentile The percentile, between 0 and 100
+     * @return The tick time in milliseconds
+     */
+    public double getTickPercentile(double percentile) {
+        if (ticks == 0) {
+            return 0;
+        }
+        long[] sorted = Arrays.copyOf(tickNanos, ticks);
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile / 100 * ticks) - 1;
+        return sorted[Math.max(0, Math.min(ticks - 1, index))] / 1000000D;
+    }
+
+    /**
+     * Get the number of full inventory resends caused by updateInventory
+     *
+     * @return The resend count
+     */
+    public long getResends() {
+        return resends;
+    }
+
+    /**
+     * Get the number of viewers of the menus players asked to refresh, each
+     * of whom is sent their inventory again
+     *
+     * @return The refreshed viewer count
+     */
+    public long getRefreshedViewers() {
+        return refreshedViewers;
+    }
+
+    /**
+     * Get the number of slots written to inventories that had viewers
+     *
+     * @return The slot write count
+     */
+    public long getSlotWrites() {
+        return slotWrites;
+    }
+
+    /**
+     * Get the growth of the used heap over the run, measured after garbage
+     * collection
+     *
+     * @return The heap growth in bytes
+     */
+    public long getHeapGrowth() {
+        return heapAfterRun - heapBeforeRun;
+    }
+
+    /**
+     * Get the number of players still listed as viewing the lobby or a shop
+     * session after they quit
+     *
+     * @return The leaked viewer count
+     */
+    public int getLeakedViewers() {
+        return leakedViewers;
+    }
+
+    /**
+     * Get the number of shop catalog sessions still open after every player
+     * quit
+     *
+     * @return The leaked session count
+     */
+    public int getLeakedSessions() {
+        return leakedSessions;
+    }
+
+    /**
+     * Get the number of menu clicks simulated
+     *
+     * @return The click count
+     */
+    public long getClicks() {
+        return clicks;
+    }
+
+    /**
+     * Get the number of menu clones still reachable after every player quit
+     * and the heap was collected, other than the one the profile template's
+     * shared items still point at
+     *
+     * @return The reachable clone count
+     */
+    public int getClonesReachable() {
+        return clonesReachable;
+    }
+
+    /**
+     * Get the number of viewers still on reachable menu clones after every
+     * player quit
+     *
+     * @return The clone viewer count
+     */
+    public int getCloneViewers() {
+        return cloneViewers;
+    }
+
+    /**
+     * Prints a summary of the run
+     *
+     * @param out The stream to print to
+     */
+    public void print(PrintStream out) {
+        out.println("Ticks simulated:     " + ticks);
+        out.println(String.format("Tick time (ms):      p50 %.3f  p90 %.3f  p99 %.3f  max %.3f",
+                getTickPercentile(50), getTickPercentile(90), getTickPercentile(99), getTickPercentile(100)));
+        out.println("Opens / closes:      " + opens + " / " + closes);
+        out.println("Clicks:              " + clicks);
+        out.println("Joins / quits:       " + joins + " / " + quits);
+        out.println("Inventory resends:   " + resends + " (" + resentSlots + " slots, " + refreshedViewers
+                + " asked for by refreshes)");
+        out.println("Slot writes:         " + slotWrites);
+        out.println("Messages sent:       " + messages);
+        out.println("Task errors:         " + taskErrors);
+        out.println("Deferred menu tasks: " + deferredMenuTasks + " (" + carriedTicks + " ticks carried over, "
+                + "longest wait " + maxDeferredTicks + " ticks)");
+        out.println("Leaked viewers:      " + leakedViewers + " (" + leakedSessions + " shop sessions left open)");
+        out.println("Menu clones:         " + clonesCreated + " created, " + clonesReachable + " still reachable, "
+                + cloneViewers + " viewers left on them");
+        out.println(String.format("Heap growth:         %.2f MB", getHeapGrowth() / (1024D * 1024D)));
+    }
+}
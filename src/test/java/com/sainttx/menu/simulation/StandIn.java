@@ -0,0 +1,78 @@
+package com.sainttx.menu.simulation;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+/**
+ * Base for the simulated stand-ins of Bukkit interfaces. Only the methods
+ * the menu system uses are handled, every other method returns the default
+ * value for its return type.
+ */
+abstract class StandIn implements InvocationHandler {
+
+    /*
+     * Returned by handle when a method isn't simulated
+     */
+    protected static final Object UNHANDLED = new Object();
+
+    /**
+     * Creates a proxy of the given interface backed by this stand-in
+     *
+     * @param type The interface to implement
+     * @return The proxy
+     */
+    @SuppressWarnings("unchecked")
+    <T> T createProxy(Class<T> type) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, this);
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        String name = method.getName();
+        if (method.getDeclaringClass() == Object.class) {
+            if (name.equals("equals")) {
+                return proxy == args[0];
+            } else if (name.equals("hashCode")) {
+                return System.identityHashCode(proxy);
+            } else {
+                return getClass().getSimpleName() + "@" + Integer.toHexString(System.identityHashCode(proxy));
+            }
+        }
+
+        Object result = handle(proxy, name, args == null ? new Object[0] : args);
+        return result == UNHANDLED ? defaultValue(method.getReturnType()) : result;
+    }
+
+    /**
+     * Handles a call to the stand-in
+     *
+     * @param proxy  The proxy the method was called on
+     * @param method The method name
+     * @param args   The arguments, never null
+     * @return The result, or UNHANDLED if the method isn't simulated
+     */
+    protected abstract Object handle(Object proxy, String method, Object[] args) throws Throwable;
+
+    private static Object defaultValue(Class<?> type) {
+        if (!type.isPrimitive() || type == void.class) {
+            return null;
+        } else if (type == boolean.class) {
+            return false;
+        } else if (type == char.class) {
+            return '\0';
+        } else if (type == byte.class) {
+            return (byte) 0;
+        } else if (type == short.class) {
+            return (short) 0;
+        } else if (type == int.class) {
+            return 0;
+        } else if (type == long.class) {
+            return 0L;
+        } else if (type == float.class) {
+            return 0F;
+        } else {
+            return 0D;
+        }
+    }
+}